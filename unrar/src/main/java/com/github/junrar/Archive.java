@@ -19,28 +19,40 @@
 package com.github.junrar;
 
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.github.junrar.crc.RarCRC;
 import com.github.junrar.exception.RarException;
 import com.github.junrar.exception.RarException.RarExceptionType;
 import com.github.junrar.impl.FileVolumeManager;
+import com.github.junrar.io.IFileChannelAccess;
 import com.github.junrar.io.IReadOnlyAccess;
+import com.github.junrar.io.SignatureScanner;
 import com.github.junrar.rarfile.AVHeader;
 import com.github.junrar.rarfile.BaseBlock;
+import com.github.junrar.rarfile.BlockScanner;
 import com.github.junrar.rarfile.BlockHeader;
 import com.github.junrar.rarfile.CommentHeader;
 import com.github.junrar.rarfile.EAHeader;
 import com.github.junrar.rarfile.EndArcHeader;
 import com.github.junrar.rarfile.FileHeader;
+import com.github.junrar.rarfile.FileHeaderCatalog;
 import com.github.junrar.rarfile.MacInfoHeader;
 import com.github.junrar.rarfile.MainHeader;
 import com.github.junrar.rarfile.MarkHeader;
@@ -49,8 +61,11 @@ import com.github.junrar.rarfile.SignHeader;
 import com.github.junrar.rarfile.SubBlockHeader;
 import com.github.junrar.rarfile.UnixOwnersHeader;
 import com.github.junrar.rarfile.UnrarHeadertype;
+import com.github.junrar.unpack.BufferPool;
 import com.github.junrar.unpack.ComprDataIO;
+import com.github.junrar.unpack.DefaultBufferPool;
 import com.github.junrar.unpack.Unpack;
+import com.github.junrar.unpack.decode.Compress;
 
 
 /**
@@ -62,6 +77,18 @@ import com.github.junrar.unpack.Unpack;
 public class Archive implements Closeable {
 	private static Logger logger = Logger.getLogger(Archive.class.getName());
 
+	/** the default size of a read-ahead buffer */
+	public static final int DEFAULT_READ_AHEAD_BUFFER_SIZE = 0x40000;
+
+	/**
+	 * how far into a volume the mark header is searched for, as the module of
+	 * a self extracting archive comes first
+	 */
+	public static final long MAX_SFX_SIZE = 0x200000;
+
+	/** the largest region of a stored file mapped at once */
+	private static final long MAX_MAPPING_SIZE = 0x4000000;
+
 	private IReadOnlyAccess rof;
 
 	private final UnrarCallback unrarCallback;
@@ -70,10 +97,36 @@ public class Archive implements Closeable {
 
 	private final List<BaseBlock> headers = new ArrayList<BaseBlock>();
 
+	/** the file headers of the headers, in order */
+	private final List<FileHeader> fileHeaders = new ArrayList<FileHeader>();
+
+	/** the file and sub headers by their position in the volume */
+	private final Map<Long, FileHeader> headersByPosition =
+			new HashMap<Long, FileHeader>();
+
+	/**
+	 * the file headers by their normalized names, filled by
+	 * {@link #getEntry(String)} so names are only decoded when looked up
+	 */
+	private final Map<String, FileHeader> headersByName =
+			new HashMap<String, FileHeader>();
+
+	/** the number of file headers in headersByName */
+	private int namedHeaderCount;
+
+	/** the file headers in catalog mode, null in the other modes */
+	private final FileHeaderCatalog catalog;
+
+	/** the next entry of the catalog returned by {@link #nextFileHeader()} */
+	private int currentEntryIndex;
+
 	private MarkHeader markHead = null;
 
 	private MainHeader newMhd = null;
 
+	/** the end header of the volume, null until it has been read */
+	private EndArcHeader endArcHead = null;
+
 	private Unpack unpack;
 
 	private int currentHeaderIndex;
@@ -87,6 +140,41 @@ public class Archive implements Closeable {
 	private VolumeManager volumeManager;
 	private Volume volume;
 
+	/** length of the current volume */
+	private long volumeLength;
+
+	/** where the next block starts if the previous block has data to skip */
+	private long nextBlockPosition = -1;
+
+	/** true once the last block of the current volume has been read */
+	private boolean endOfHeaders;
+
+	/** the exception which ended the scan of the current volume, if any */
+	private Exception headerError;
+
+	/** number of buffers read ahead of the decoder, 0 to read synchronously */
+	private int readAheadBufferCount;
+
+	private int readAheadBufferSize = DEFAULT_READ_AHEAD_BUFFER_SIZE;
+
+	private BufferPool bufferPool = DefaultBufferPool.getShared();
+
+	private boolean offHeap;
+
+	private final HeaderScanMode scanMode;
+
+	/** the blocks read from the current volume, null if no index is kept */
+	private HeaderIndex indexRecord;
+
+	/** whether damaged blocks are skipped instead of ending the scan */
+	private final boolean recoveryMode;
+
+	/** the position of the last block read, -1 if there is none */
+	private long lastBlockPosition = -1;
+
+	private final List<DamagedRange> damagedRanges =
+			new ArrayList<DamagedRange>();
+
 	public Archive(VolumeManager volumeManager) throws RarException,
 			IOException {
 		this(volumeManager, null);
@@ -102,11 +190,56 @@ public class Archive implements Closeable {
 	 */
 	public Archive(VolumeManager volumeManager, UnrarCallback unrarCallback)
 			throws RarException, IOException {
+		this(volumeManager, unrarCallback, HeaderScanMode.EAGER);
+	}
+
+	/**
+	 * create a new archive object using the given {@link VolumeManager}
+	 * 
+	 * @param volumeManager
+	 *            the the {@link VolumeManager} that will provide volume stream
+	 *            data
+	 * @param unrarCallback
+	 *            the callback or null
+	 * @param scanMode
+	 *            when the headers of a volume are read
+	 * @throws RarException
+	 */
+	public Archive(VolumeManager volumeManager, UnrarCallback unrarCallback,
+			HeaderScanMode scanMode) throws RarException, IOException {
+		this(volumeManager, unrarCallback, scanMode, false);
+	}
+
+	/**
+	 * create a new archive object using the given {@link VolumeManager}
+	 * 
+	 * @param volumeManager
+	 *            the the {@link VolumeManager} that will provide volume stream
+	 *            data
+	 * @param unrarCallback
+	 *            the callback or null
+	 * @param scanMode
+	 *            when the headers of a volume are read
+	 * @param recoveryMode
+	 *            whether the CRC of every header is checked and a damaged
+	 *            block is skipped up to the next valid block instead of
+	 *            ending the scan of the volume, the skipped regions are
+	 *            reported by {@link #getDamagedRanges()}. Volumes read in
+	 *            streaming mode are not recovered.
+	 * @throws RarException
+	 */
+	public Archive(VolumeManager volumeManager, UnrarCallback unrarCallback,
+			HeaderScanMode scanMode, boolean recoveryMode)
+			throws RarException, IOException {
 		this.volumeManager = volumeManager;
 		this.unrarCallback = unrarCallback;
+		this.scanMode = scanMode;
+		this.recoveryMode = recoveryMode;
+		this.catalog = scanMode == HeaderScanMode.CATALOG
+				? new FileHeaderCatalog() : null;
 
-		setVolume(this.volumeManager.nextArchive(this, null));
 		dataIO = new ComprDataIO(this);
+		setVolume(this.volumeManager.nextArchive(this, null));
 	}
 
 	public Archive(File firstVolume) throws RarException, IOException {
@@ -118,6 +251,11 @@ public class Archive implements Closeable {
 		this(new FileVolumeManager(firstVolume), unrarCallback);
 	}
 
+	public Archive(File firstVolume, HeaderScanMode scanMode)
+			throws RarException, IOException {
+		this(new FileVolumeManager(firstVolume), null, scanMode);
+	}
+
 	// public File getFile() {
 	// return file;
 	// }
@@ -130,23 +268,45 @@ public class Archive implements Closeable {
 	private void setFile(IReadOnlyAccess file, long length) throws IOException {
 		totalPackedSize = 0L;
 		totalPackedRead = 0L;
-		close();
+		// the decoder goes on with a file split across volumes
+		closeFile();
 		rof = file;
+		resetHeaders(length);
+		indexRecord = null;
+		if (scanMode == HeaderScanMode.STREAMING) {
+			return;
+		}
+		if (volume instanceof IndexedVolume) {
+			if (readHeaderIndex()) {
+				notifyVolumeProgress();
+				return;
+			}
+			indexRecord = new HeaderIndex();
+		}
 		try {
-			readHeaders(length);
+			findMarkHeader();
+			if (scanMode == HeaderScanMode.LAZY) {
+				while (newMhd == null && !endOfHeaders) {
+					if (!readHeader()) {
+						endOfHeaders = true;
+					}
+				}
+			} else {
+				readHeaders();
+			}
 		} catch (Exception e) {
 			logger.log(Level.WARNING,
 					"exception in archive constructor maybe file is encrypted "
 							+ "or currupt", e);
 			// ignore exceptions to allow exraction of working files in
 			// corrupt archive
+			headerError = e;
+			endOfHeaders = true;
 		}
-		// Calculate size of packed data
-		for (BaseBlock block : headers) {
-			if (block.getHeaderType() == UnrarHeadertype.FileHeader) {
-				totalPackedSize += ((FileHeader) block).getFullPackSize();
-			}
-		}
+		notifyVolumeProgress();
+	}
+
+	private void notifyVolumeProgress() {
 		if (unrarCallback != null) {
 			unrarCallback.volumeProgressChanged(totalPackedRead,
 					totalPackedSize);
@@ -168,27 +328,178 @@ public class Archive implements Closeable {
 	}
 
 	/**
+	 * In lazy mode this reads all headers of the volume which have not been
+	 * read yet, in streaming mode only the headers read last are returned.
+	 * The list is a copy which does not change when another volume is read.
+	 * In catalog mode the list is an unmodifiable view of the catalog which
+	 * creates the headers when they are asked for. It follows the catalog to
+	 * the next volume, callers needing a snapshot must copy it.
+	 * 
 	 * @return returns all file headers of the archive
 	 */
 	public List<FileHeader> getFileHeaders() {
-		List<FileHeader> list = new ArrayList<FileHeader>();
-		for (BaseBlock block : headers) {
-			if (block.getHeaderType().equals(UnrarHeadertype.FileHeader)) {
-				list.add((FileHeader) block);
-			}
+		while (!endOfHeaders && scanMode == HeaderScanMode.LAZY) {
+			readHeaderLenient();
+		}
+		if (catalog != null) {
+			return Collections.unmodifiableList(catalog.asList());
+		}
+		return new ArrayList<FileHeader>(fileHeaders);
+	}
+
+	/**
+	 * Looks up a file by its name, either the name of
+	 * {@link FileHeader#getFileNameString()} or the unicode name of
+	 * {@link FileHeader#getFileNameW()}. Backslashes and slashes are treated
+	 * alike. In lazy mode the headers are read until the file is found.
+	 * 
+	 * @param name
+	 *            the path of the file in the archive
+	 * @return the first file with the name or null if there is none
+	 */
+	public FileHeader getEntry(String name) {
+		if (catalog != null) {
+			int index = catalog.indexOf(name);
+			return index >= 0 ? catalog.getFileHeader(index) : null;
+		}
+		String key = FileHeaderCatalog.normalizeName(name);
+		addNames();
+		FileHeader hd = headersByName.get(key);
+		while (hd == null && !endOfHeaders
+				&& scanMode == HeaderScanMode.LAZY) {
+			readHeaderLenient();
+			addNames();
+			hd = headersByName.get(key);
+		}
+		return hd;
+	}
+
+	/**
+	 * @return whether the header has been read from the current volume
+	 */
+	private boolean containsHeader(FileHeader hd) {
+		if (hd == null) {
+			return false;
+		}
+		if (catalog != null && hd.isFileHeader()) {
+			return catalog.indexOf(hd.getPositionInFile()) >= 0;
+		}
+		return headersByPosition.get(hd.getPositionInFile()) == hd;
+	}
+
+	private void addFileHeader(FileHeader fh) {
+		headersByPosition.put(fh.getPositionInFile(), fh);
+		if (fh.getHeaderType() != UnrarHeadertype.FileHeader) {
+			return;
+		}
+		fileHeaders.add(fh);
+	}
+
+	/**
+	 * adds the names of the file headers read since the last call
+	 */
+	private void addNames() {
+		for (; namedHeaderCount < fileHeaders.size(); namedHeaderCount++) {
+			FileHeader fh = fileHeaders.get(namedHeaderCount);
+			addName(fh.getFileNameString(), fh);
+			addName(fh.getFileNameW(), fh);
+		}
+	}
+
+	private void addName(String name, FileHeader fh) {
+		if (name == null || name.length() == 0) {
+			return;
+		}
+		String key = FileHeaderCatalog.normalizeName(name);
+		if (!headersByName.containsKey(key)) {
+			headersByName.put(key, fh);
 		}
-		return list;
 	}
 
 	public FileHeader nextFileHeader() {
-		int n = headers.size();
-		while (currentHeaderIndex < n) {
-			BaseBlock block = headers.get(currentHeaderIndex++);
-			if (block.getHeaderType() == UnrarHeadertype.FileHeader) {
-				return (FileHeader) block;
+		if (scanMode == HeaderScanMode.STREAMING) {
+			try {
+				return readNextFileHeader();
+			} catch (Exception e) {
+				logger.log(Level.WARNING, "exception while reading headers", e);
+				return null;
 			}
 		}
-		return null;
+		if (catalog != null) {
+			return currentEntryIndex < catalog.size() ? catalog
+					.getFileHeader(currentEntryIndex++) : null;
+		}
+		while (true) {
+			while (currentHeaderIndex < headers.size()) {
+				BaseBlock block = headers.get(currentHeaderIndex++);
+				if (block.getHeaderType() == UnrarHeadertype.FileHeader) {
+					return (FileHeader) block;
+				}
+			}
+			if (endOfHeaders) {
+				return null;
+			}
+			readHeaderLenient();
+		}
+	}
+
+	/**
+	 * reads the next block in lazy mode, an exception ends the scan of the
+	 * volume as it does in the eager scan
+	 */
+	private void readHeaderLenient() {
+		try {
+			if (!readHeader()) {
+				endOfHeaders = true;
+			}
+		} catch (Exception e) {
+			logger.log(Level.WARNING,
+					"exception while reading headers maybe file is encrypted "
+							+ "or currupt", e);
+			headerError = e;
+			endOfHeaders = true;
+		}
+	}
+
+	/**
+	 * Returns all file headers of the current volume as
+	 * {@link #getFileHeaders()} does, but fails if the scan of the volume was
+	 * ended by an exception instead of returning the headers read before it.
+	 */
+	List<FileHeader> getAllFileHeaders() throws RarException, IOException {
+		List<FileHeader> list = getFileHeaders();
+		if (headerError instanceof RarException) {
+			throw (RarException) headerError;
+		}
+		if (headerError instanceof IOException) {
+			throw (IOException) headerError;
+		}
+		if (headerError != null) {
+			throw new RarException(headerError);
+		}
+		return list;
+	}
+
+	/**
+	 * @return whether damaged blocks are skipped
+	 */
+	public boolean isRecoveryMode() {
+		return recoveryMode;
+	}
+
+	/**
+	 * @return the regions skipped in recovery mode in all volumes read so far
+	 */
+	public List<DamagedRange> getDamagedRanges() {
+		return Collections.unmodifiableList(damagedRanges);
+	}
+
+	/**
+	 * @return the file headers of the current volume in catalog mode, null
+	 *         in the other modes
+	 */
+	public FileHeaderCatalog getCatalog() {
+		return catalog;
 	}
 
 	public UnrarCallback getUnrarCallback() {
@@ -208,221 +519,459 @@ public class Archive implements Closeable {
 	}
 
 	/**
-	 * Read the headers of the archive
+	 * Reads the headers of the current volume up to the next file header. The
+	 * headers read before are forgotten, so memory stays constant however
+	 * many entries the archive has. Used in streaming mode.
 	 * 
-	 * @param fileLength
-	 *            Length of file.
-	 * @throws RarException
+	 * @return the next file header or null at the end of the volume
 	 */
-	private void readHeaders(long fileLength) throws IOException, RarException {
-		markHead = null;
-		newMhd = null;
+	FileHeader readNextFileHeader() throws IOException, RarException {
+		clearHeaders();
+		while (!endOfHeaders) {
+			if (!readHeader()) {
+				endOfHeaders = true;
+			}
+			while (currentHeaderIndex < headers.size()) {
+				BaseBlock block = headers.get(currentHeaderIndex++);
+				if (block.getHeaderType() == UnrarHeadertype.FileHeader) {
+					return (FileHeader) block;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * moves to the mark header of the volume, which follows the module of a
+	 * self extracting archive
+	 */
+	private void findMarkHeader() throws IOException {
+		long position = SignatureScanner.find(rof, 0,
+				Math.min(volumeLength, MAX_SFX_SIZE));
+		if (position > 0) {
+			rof.setPosition(position);
+		}
+	}
+
+	/**
+	 * The positions of the headers are those in the volume, they include the
+	 * size of the module.
+	 * 
+	 * @return the size of the module before the archive in a self extracting
+	 *         archive, 0 if the current volume starts with the archive
+	 */
+	public long getSfxSize() {
+		return markHead != null ? markHead.getPositionInFile() : 0;
+	}
+
+	/**
+	 * Parses the headers of the current volume from its index instead of the
+	 * volume. An index which cannot be parsed is ignored.
+	 * 
+	 * @return true if the headers have been read from the index
+	 */
+	private boolean readHeaderIndex() {
+		HeaderIndex index;
+		try {
+			index = ((IndexedVolume) volume).loadHeaderIndex();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "could not load the header index", e);
+			return false;
+		}
+		if (index == null) {
+			return false;
+		}
+		try {
+			IReadOnlyAccess in = index.getReadOnlyAccess();
+			while (readHeader(in)) {
+			}
+		} catch (Exception e) {
+			logger.log(Level.WARNING, "damaged header index, scanning volume",
+					e);
+			totalPackedSize = 0L;
+			resetHeaders(volumeLength);
+			return false;
+		}
+		nextBlockPosition = -1;
+		endOfHeaders = true;
+		return true;
+	}
+
+	/**
+	 * stores the blocks recorded while scanning the current volume
+	 */
+	private void storeHeaderIndex() {
+		HeaderIndex index = indexRecord;
+		indexRecord = null;
+		try {
+			((IndexedVolume) volume).storeHeaderIndex(index);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "could not store the header index", e);
+		}
+	}
+
+	private void clearHeaders() {
 		headers.clear();
+		fileHeaders.clear();
+		headersByPosition.clear();
+		headersByName.clear();
+		namedHeaderCount = 0;
 		currentHeaderIndex = 0;
-		int toRead = 0;
+		if (catalog != null) {
+			catalog.clear();
+			currentEntryIndex = 0;
+		}
+	}
 
-		while (true) {
-			int size = 0;
-			long newpos = 0;
-			byte[] baseBlockBuffer = new byte[BaseBlock.BaseBlockSize];
+	private void resetHeaders(long fileLength) {
+		markHead = null;
+		newMhd = null;
+		endArcHead = null;
+		clearHeaders();
+		volumeLength = fileLength;
+		nextBlockPosition = -1;
+		lastBlockPosition = -1;
+		endOfHeaders = false;
+		headerError = null;
+	}
 
-			long position = rof.getPosition();
+	/**
+	 * Read the headers of the archive
+	 * 
+	 * @throws RarException
+	 */
+	private void readHeaders() throws IOException, RarException {
+		while (readHeader()) {
+		}
+		endOfHeaders = true;
+	}
 
-			// Weird, but is trying to read beyond the end of the file
-			if (position >= fileLength) {
-				break;
+	/**
+	 * Reads the next block of the current volume. The data of the previous
+	 * block is skipped first, so the data of a file can still be read after
+	 * its header has been returned. In recovery mode a damaged block is
+	 * skipped up to the next valid block.
+	 * 
+	 * @return false if there are no more blocks in the volume
+	 * @throws RarException
+	 */
+	private boolean readHeader() throws IOException, RarException {
+		long start = nextBlockPosition >= 0 ? nextBlockPosition : rof
+				.getPosition();
+		try {
+			if (isRecovering()) {
+				checkBlock(start);
 			}
-
-			// logger.info("\n--------reading header--------");
-			size = rof.readFully(baseBlockBuffer, BaseBlock.BaseBlockSize);
-			if (size == 0) {
-				break;
+			boolean more = indexRecord == null ? readHeader(rof)
+					: readRecordedHeader(start);
+			lastBlockPosition = start;
+			return more;
+		} catch (IOException e) {
+			indexRecord = null;
+			if (!isRecovering()) {
+				throw e;
+			}
+			return resync(start, e);
+		} catch (RarException e) {
+			indexRecord = null;
+			if (!isRecovering()
+					|| e.getType() == RarExceptionType.rarEncryptedException) {
+				throw e;
 			}
-			BaseBlock block = new BaseBlock(baseBlockBuffer);
+			return resync(start, e);
+		}
+	}
 
-			block.setPositionInFile(position);
+	/**
+	 * @return whether damaged blocks of the current volume are skipped
+	 */
+	private boolean isRecovering() {
+		return recoveryMode && markHead != null && !markHead.isOldFormat()
+				&& scanMode != HeaderScanMode.STREAMING;
+	}
 
-			switch (block.getHeaderType()) {
+	/**
+	 * checks the CRC of the block before it is parsed, a block whose data
+	 * exceeds the volume is reported as damaged
+	 */
+	private void checkBlock(long start) throws IOException, RarException {
+		if (start > volumeLength && lastBlockPosition >= 0) {
+			damagedRanges.add(new DamagedRange(volume, lastBlockPosition,
+					volumeLength));
+		} else if (start < volumeLength
+				&& !BlockScanner.isValidBlock(rof, start, volumeLength)) {
+			throw new RarException(RarExceptionType.crcError);
+		}
+	}
 
-			case MarkHeader:
-				markHead = new MarkHeader(block);
-				if (!markHead.isSignature()) {
-					throw new RarException(
-							RarException.RarExceptionType.badRarArchive);
-				}
-				headers.add(markHead);
-				// markHead.print();
-				break;
+	/**
+	 * continues after a damaged block with the next valid block
+	 * 
+	 * @return false if there is no valid block after the damaged one
+	 */
+	private boolean resync(long start, Exception cause) throws IOException {
+		long next = BlockScanner.find(rof, start + 1, volumeLength);
+		DamagedRange range = new DamagedRange(volume, start,
+				next < 0 ? volumeLength : next);
+		damagedRanges.add(range);
+		logger.log(Level.WARNING, "skipping " + range, cause);
+		if (next < 0) {
+			return false;
+		}
+		nextBlockPosition = next;
+		return true;
+	}
 
-			case MainHeader:
-				toRead = block.hasEncryptVersion() ? MainHeader.mainHeaderSizeWithEnc
-						: MainHeader.mainHeaderSize;
-				byte[] mainbuff = new byte[toRead];
-				rof.readFully(mainbuff, toRead);
-				MainHeader mainhead = new MainHeader(block, mainbuff);
-				headers.add(mainhead);
-				this.newMhd = mainhead;
-				if (newMhd.isEncrypted()) {
-					throw new RarException(
-							RarExceptionType.rarEncryptedException);
+	/**
+	 * Reads the next block and adds its bytes to the index of the volume, the
+	 * index is stored once the last block has been read.
+	 */
+	private boolean readRecordedHeader(long start) throws IOException,
+			RarException {
+		boolean more = readHeader(rof);
+		long end = rof.getPosition();
+		if (end > start) {
+			ByteBuffer block = ByteBuffer.allocate((int) (end - start));
+			while (block.hasRemaining()) {
+				if (rof.read(block, start + block.position()) < 0) {
+					throw new EOFException();
 				}
-				// mainhead.print();
-				break;
+			}
+			indexRecord.add(start, block.array());
+		}
+		if (!more) {
+			storeHeaderIndex();
+		}
+		return more;
+	}
 
-			case SignHeader:
-				toRead = SignHeader.signHeaderSize;
-				byte[] signBuff = new byte[toRead];
-				rof.readFully(signBuff, toRead);
-				SignHeader signHead = new SignHeader(block, signBuff);
-				headers.add(signHead);
-				// logger.info("HeaderType: SignHeader");
+	/**
+	 * Reads the next block from the given access, which is the volume itself
+	 * or the blocks of its index.
+	 * 
+	 * @return false if there are no more blocks in the volume
+	 * @throws RarException
+	 */
+	private boolean readHeader(IReadOnlyAccess in) throws IOException,
+			RarException {
+		int toRead = 0;
+		int size = 0;
+		long newpos = 0;
+		byte[] baseBlockBuffer = new byte[BaseBlock.BaseBlockSize];
 
-				break;
+		if (nextBlockPosition >= 0) {
+			in.setPosition(nextBlockPosition);
+			nextBlockPosition = -1;
+		}
+		long position = in.getPosition();
 
-			case AvHeader:
-				toRead = AVHeader.avHeaderSize;
-				byte[] avBuff = new byte[toRead];
-				rof.readFully(avBuff, toRead);
-				AVHeader avHead = new AVHeader(block, avBuff);
-				headers.add(avHead);
-				// logger.info("headertype: AVHeader");
-				break;
+		// Weird, but is trying to read beyond the end of the file
+		if (position >= volumeLength) {
+			return false;
+		}
 
-			case CommHeader:
-				toRead = CommentHeader.commentHeaderSize;
-				byte[] commBuff = new byte[toRead];
-				rof.readFully(commBuff, toRead);
-				CommentHeader commHead = new CommentHeader(block, commBuff);
-				headers.add(commHead);
-				// logger.info("method: "+commHead.getUnpMethod()+"; 0x"+
-				// Integer.toHexString(commHead.getUnpMethod()));
-				newpos = commHead.getPositionInFile()
-						+ commHead.getHeaderSize();
-				rof.setPosition(newpos);
+		// logger.info("\n--------reading header--------");
+		size = in.readFully(baseBlockBuffer, BaseBlock.BaseBlockSize);
+		if (size == 0) {
+			return false;
+		}
+		BaseBlock block = new BaseBlock(baseBlockBuffer);
 
-				break;
-			case EndArcHeader:
+		block.setPositionInFile(position);
+		if (markHead == null
+				&& block.getHeaderType() != UnrarHeadertype.MarkHeader) {
+			throw new RarException(RarExceptionType.badRarArchive);
+		}
 
-				toRead = 0;
-				if (block.hasArchiveDataCRC()) {
-					toRead += EndArcHeader.endArcArchiveDataCrcSize;
-				}
-				if (block.hasVolumeNumber()) {
-					toRead += EndArcHeader.endArcVolumeNumberSize;
-				}
-				EndArcHeader endArcHead;
-				if (toRead > 0) {
-					byte[] endArchBuff = new byte[toRead];
-					rof.readFully(endArchBuff, toRead);
-					endArcHead = new EndArcHeader(block, endArchBuff);
-					// logger.info("HeaderType: endarch\ndatacrc:"+
-					// endArcHead.getArchiveDataCRC());
+		switch (block.getHeaderType()) {
+
+		case MarkHeader:
+			markHead = new MarkHeader(block);
+			if (!markHead.isSignature()) {
+				throw new RarException(
+						RarException.RarExceptionType.badRarArchive);
+			}
+			headers.add(markHead);
+			// markHead.print();
+			break;
+
+		case MainHeader:
+			toRead = block.hasEncryptVersion() ? MainHeader.mainHeaderSizeWithEnc
+					: MainHeader.mainHeaderSize;
+			byte[] mainbuff = new byte[toRead];
+			in.readFully(mainbuff, toRead);
+			MainHeader mainhead = new MainHeader(block, mainbuff);
+			headers.add(mainhead);
+			this.newMhd = mainhead;
+			if (newMhd.isEncrypted()) {
+				throw new RarException(
+						RarExceptionType.rarEncryptedException);
+			}
+			// mainhead.print();
+			break;
+
+		case SignHeader:
+			toRead = SignHeader.signHeaderSize;
+			byte[] signBuff = new byte[toRead];
+			in.readFully(signBuff, toRead);
+			SignHeader signHead = new SignHeader(block, signBuff);
+			headers.add(signHead);
+			// logger.info("HeaderType: SignHeader");
+
+			break;
+
+		case AvHeader:
+			toRead = AVHeader.avHeaderSize;
+			byte[] avBuff = new byte[toRead];
+			in.readFully(avBuff, toRead);
+			AVHeader avHead = new AVHeader(block, avBuff);
+			headers.add(avHead);
+			// logger.info("headertype: AVHeader");
+			break;
+
+		case CommHeader:
+			toRead = CommentHeader.commentHeaderSize;
+			byte[] commBuff = new byte[toRead];
+			in.readFully(commBuff, toRead);
+			CommentHeader commHead = new CommentHeader(block, commBuff);
+			headers.add(commHead);
+			// logger.info("method: "+commHead.getUnpMethod()+"; 0x"+
+			// Integer.toHexString(commHead.getUnpMethod()));
+			newpos = commHead.getPositionInFile()
+					+ commHead.getHeaderSize();
+			nextBlockPosition = newpos;
+
+			break;
+		case EndArcHeader:
+
+			toRead = 0;
+			if (block.hasArchiveDataCRC()) {
+				toRead += EndArcHeader.endArcArchiveDataCrcSize;
+			}
+			if (block.hasVolumeNumber()) {
+				toRead += EndArcHeader.endArcVolumeNumberSize;
+			}
+			if (toRead > 0) {
+				byte[] endArchBuff = new byte[toRead];
+				in.readFully(endArchBuff, toRead);
+				endArcHead = new EndArcHeader(block, endArchBuff);
+				// logger.info("HeaderType: endarch\ndatacrc:"+
+				// endArcHead.getArchiveDataCRC());
+			} else {
+				// logger.info("HeaderType: endarch - no Data");
+				endArcHead = new EndArcHeader(block, null);
+			}
+			headers.add(endArcHead);
+			// logger.info("\n--------end header--------");
+			return false;
+
+		default:
+			byte[] blockHeaderBuffer = new byte[BlockHeader.blockHeaderSize];
+			in.readFully(blockHeaderBuffer, BlockHeader.blockHeaderSize);
+			BlockHeader blockHead = new BlockHeader(block,
+					blockHeaderBuffer);
+
+			switch (blockHead.getHeaderType()) {
+			case NewSubHeader:
+			case FileHeader:
+				toRead = blockHead.getHeaderSize()
+						- BlockHeader.BaseBlockSize
+						- BlockHeader.blockHeaderSize;
+				byte[] fileHeaderBuffer = new byte[toRead];
+				in.readFully(fileHeaderBuffer, toRead);
+
+				FileHeader fh = new FileHeader(blockHead, fileHeaderBuffer);
+				if (catalog != null && fh.isFileHeader()) {
+					catalog.add(fh, baseBlockBuffer, blockHeaderBuffer,
+							fileHeaderBuffer);
 				} else {
-					// logger.info("HeaderType: endarch - no Data");
-					endArcHead = new EndArcHeader(block, null);
+					headers.add(fh);
+					addFileHeader(fh);
 				}
-				headers.add(endArcHead);
-				// logger.info("\n--------end header--------");
-				return;
+				if (fh.getHeaderType() == UnrarHeadertype.FileHeader) {
+					totalPackedSize += fh.getFullPackSize();
+				}
+				newpos = fh.getPositionInFile() + fh.getHeaderSize()
+						+ fh.getFullPackSize();
+				nextBlockPosition = newpos;
+				break;
 
-			default:
-				byte[] blockHeaderBuffer = new byte[BlockHeader.blockHeaderSize];
-				rof.readFully(blockHeaderBuffer, BlockHeader.blockHeaderSize);
-				BlockHeader blockHead = new BlockHeader(block,
-						blockHeaderBuffer);
-
-				switch (blockHead.getHeaderType()) {
-				case NewSubHeader:
-				case FileHeader:
-					toRead = blockHead.getHeaderSize()
-							- BlockHeader.BaseBlockSize
-							- BlockHeader.blockHeaderSize;
-					byte[] fileHeaderBuffer = new byte[toRead];
-					rof.readFully(fileHeaderBuffer, toRead);
-
-					FileHeader fh = new FileHeader(blockHead, fileHeaderBuffer);
-					headers.add(fh);
-					newpos = fh.getPositionInFile() + fh.getHeaderSize()
-							+ fh.getFullPackSize();
-					rof.setPosition(newpos);
-					break;
+			case ProtectHeader:
+				toRead = blockHead.getHeaderSize()
+						- BlockHeader.BaseBlockSize
+						- BlockHeader.blockHeaderSize;
+				byte[] protectHeaderBuffer = new byte[toRead];
+				in.readFully(protectHeaderBuffer, toRead);
+				ProtectHeader ph = new ProtectHeader(blockHead,
+						protectHeaderBuffer);
+
+				newpos = ph.getPositionInFile() + ph.getHeaderSize()
+						+ ph.getDataSize();
+				nextBlockPosition = newpos;
+				break;
 
-				case ProtectHeader:
-					toRead = blockHead.getHeaderSize()
-							- BlockHeader.BaseBlockSize
-							- BlockHeader.blockHeaderSize;
-					byte[] protectHeaderBuffer = new byte[toRead];
-					rof.readFully(protectHeaderBuffer, toRead);
-					ProtectHeader ph = new ProtectHeader(blockHead,
-							protectHeaderBuffer);
-
-					newpos = ph.getPositionInFile() + ph.getHeaderSize()
-							+ ph.getDataSize();
-					rof.setPosition(newpos);
-					break;
+			case SubHeader: {
+				byte[] subHeadbuffer = new byte[SubBlockHeader.SubBlockHeaderSize];
+				in.readFully(subHeadbuffer,
+						SubBlockHeader.SubBlockHeaderSize);
+				SubBlockHeader subHead = new SubBlockHeader(blockHead,
+						subHeadbuffer);
+				subHead.print();
+				switch (subHead.getSubType()) {
+				case MAC_HEAD: {
+					byte[] macHeaderbuffer = new byte[MacInfoHeader.MacInfoHeaderSize];
+					in.readFully(macHeaderbuffer,
+							MacInfoHeader.MacInfoHeaderSize);
+					MacInfoHeader macHeader = new MacInfoHeader(subHead,
+							macHeaderbuffer);
+					macHeader.print();
+					headers.add(macHeader);
 
-				case SubHeader: {
-					byte[] subHeadbuffer = new byte[SubBlockHeader.SubBlockHeaderSize];
-					rof.readFully(subHeadbuffer,
-							SubBlockHeader.SubBlockHeaderSize);
-					SubBlockHeader subHead = new SubBlockHeader(blockHead,
-							subHeadbuffer);
-					subHead.print();
-					switch (subHead.getSubType()) {
-					case MAC_HEAD: {
-						byte[] macHeaderbuffer = new byte[MacInfoHeader.MacInfoHeaderSize];
-						rof.readFully(macHeaderbuffer,
-								MacInfoHeader.MacInfoHeaderSize);
-						MacInfoHeader macHeader = new MacInfoHeader(subHead,
-								macHeaderbuffer);
-						macHeader.print();
-						headers.add(macHeader);
-
-						break;
-					}
-					// TODO implement other subheaders
-					case BEEA_HEAD:
-						break;
-					case EA_HEAD: {
-						byte[] eaHeaderBuffer = new byte[EAHeader.EAHeaderSize];
-						rof.readFully(eaHeaderBuffer, EAHeader.EAHeaderSize);
-						EAHeader eaHeader = new EAHeader(subHead,
-								eaHeaderBuffer);
-						eaHeader.print();
-						headers.add(eaHeader);
-
-						break;
-					}
-					case NTACL_HEAD:
-						break;
-					case STREAM_HEAD:
-						break;
-					case UO_HEAD:
-						toRead = subHead.getHeaderSize();
-						toRead -= BaseBlock.BaseBlockSize;
-						toRead -= BlockHeader.blockHeaderSize;
-						toRead -= SubBlockHeader.SubBlockHeaderSize;
-						byte[] uoHeaderBuffer = new byte[toRead];
-						rof.readFully(uoHeaderBuffer, toRead);
-						UnixOwnersHeader uoHeader = new UnixOwnersHeader(
-								subHead, uoHeaderBuffer);
-						uoHeader.print();
-						headers.add(uoHeader);
-						break;
-					default:
-						break;
-					}
+					break;
+				}
+				// TODO implement other subheaders
+				case BEEA_HEAD:
+					break;
+				case EA_HEAD: {
+					byte[] eaHeaderBuffer = new byte[EAHeader.EAHeaderSize];
+					in.readFully(eaHeaderBuffer, EAHeader.EAHeaderSize);
+					EAHeader eaHeader = new EAHeader(subHead,
+							eaHeaderBuffer);
+					eaHeader.print();
+					headers.add(eaHeader);
 
 					break;
 				}
+				case NTACL_HEAD:
+					break;
+				case STREAM_HEAD:
+					break;
+				case UO_HEAD:
+					toRead = subHead.getHeaderSize();
+					toRead -= BaseBlock.BaseBlockSize;
+					toRead -= BlockHeader.blockHeaderSize;
+					toRead -= SubBlockHeader.SubBlockHeaderSize;
+					byte[] uoHeaderBuffer = new byte[toRead];
+					in.readFully(uoHeaderBuffer, toRead);
+					UnixOwnersHeader uoHeader = new UnixOwnersHeader(
+							subHead, uoHeaderBuffer);
+					uoHeader.print();
+					headers.add(uoHeader);
+					break;
 				default:
-					logger.warning("Unknown Header");
-					throw new RarException(RarExceptionType.notRarArchive);
-
+					break;
 				}
+
+				break;
+			}
+			default:
+				logger.warning("Unknown Header");
+				throw new RarException(RarExceptionType.notRarArchive);
+
 			}
-			// logger.info("\n--------end header--------");
 		}
+		// logger.info("\n--------end header--------");
+		return true;
 	}
 
 	/**
@@ -436,9 +985,18 @@ public class Archive implements Closeable {
 	 * @throws RarException
 	 */
 	public void extractFile(FileHeader hd, OutputStream os) throws RarException {
-		if (!headers.contains(hd)) {
+		if (!containsHeader(hd)) {
 			throw new RarException(RarExceptionType.headerNotInArchive);
 		}
+		extractFileOfVolume(hd, os);
+	}
+
+	/**
+	 * Extracts a file whose header was read by another archive of the same
+	 * volume, the header is not looked up in the headers of this archive.
+	 */
+	void extractFileOfVolume(FileHeader hd, OutputStream os)
+			throws RarException {
 		try {
 			doExtractFile(hd, os);
 		} catch (Exception e) {
@@ -451,68 +1009,122 @@ public class Archive implements Closeable {
 	}
 
 	/**
-	 * Returns an {@link InputStream} that will allow to read the file and
-	 * stream it. Please note that this method will create a new Thread and an a
-	 * pair of Pipe streams.
+	 * Extract the file specified by the given header and write it to the
+	 * supplied channel. Stored files of an archive read from a local file are
+	 * written straight from a read only mapping of the archive, all other
+	 * files are decoded as by {@link #extractFile(FileHeader, OutputStream)}.
 	 * 
-	 * @param header
+	 * @param hd
 	 *            the header to be extracted
+	 * @param channel
+	 *            the channel to write to
+	 * @throws RarException
+	 */
+	public void extractFile(FileHeader hd, WritableByteChannel channel)
+			throws RarException {
+		if (!containsHeader(hd)) {
+			throw new RarException(RarExceptionType.headerNotInArchive);
+		}
+		try {
+			if (isMappable(hd)) {
+				doExtractStoredFile(hd, channel);
+			} else {
+				doExtractFile(hd, Channels.newOutputStream(channel));
+			}
+		} catch (Exception e) {
+			if (e instanceof RarException) {
+				throw (RarException) e;
+			} else {
+				throw new RarException(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the data of a stored file as a read only mapping of the
+	 * archive, nothing is copied. The CRC of the data is not verified.
+	 * 
+	 * @param hd
+	 *            the header of the file
+	 * @return the data or null if the file is compressed, split, encrypted,
+	 *         larger than 2 GB or the archive is not read from a local file
 	 * @throws RarException
 	 * @throws IOException
-	 *             if any IO error occur
 	 */
-	public InputStream getInputStream(final FileHeader hd) throws RarException,
+	public MappedByteBuffer mapStoredFile(FileHeader hd) throws RarException,
 			IOException {
-		final PipedInputStream in = new PipedInputStream(32 * 1024);
-		final PipedOutputStream out = new PipedOutputStream(in);
-
-		// creates a new thread that will write data to the pipe. Data will be
-		// available in another InputStream, connected to the OutputStream.
-		new Thread(new Runnable() {
-			public void run() {
-				try {
-					extractFile(hd, out);
-				} catch (RarException e) {
-				} finally {
-					try {
-						out.close();
-					} catch (IOException e) {
-					}
-				}
-			}
-		}).start();
+		if (!containsHeader(hd)) {
+			throw new RarException(RarExceptionType.headerNotInArchive);
+		}
+		if (!isMappable(hd) || hd.getFullPackSize() > Integer.MAX_VALUE) {
+			return null;
+		}
+		FileChannel file = ((IFileChannelAccess) rof).getFileChannel();
+		return file.map(FileChannel.MapMode.READ_ONLY, hd.getPositionInFile()
+				+ hd.getHeaderSize(), hd.getFullPackSize());
+	}
 
-		return in;
+	/**
+	 * @return whether the data of the file can be used as it is stored in the
+	 *         archive
+	 */
+	private boolean isMappable(FileHeader hd) {
+		return hd.getUnpMethod() == 0x30 && !hd.isSplitBefore()
+				&& !hd.isSplitAfter() && !hd.isEncrypted() && !isOldFormat()
+				&& rof instanceof IFileChannelAccess;
 	}
 
-	private void doExtractFile(FileHeader hd, OutputStream os)
+	private void doExtractStoredFile(FileHeader hd, WritableByteChannel channel)
 			throws RarException, IOException {
-		dataIO.init(os);
-		dataIO.init(hd);
-		dataIO.setUnpFileCRC(this.isOldFormat() ? 0 : 0xffFFffFF);
-		if (unpack == null) {
-			unpack = new Unpack(dataIO);
+		FileChannel file = ((IFileChannelAccess) rof).getFileChannel();
+		long position = hd.getPositionInFile() + hd.getHeaderSize();
+		long remaining = hd.getFullPackSize();
+		int crc = 0xffffffff;
+		while (remaining > 0) {
+			long size = Math.min(remaining, MAX_MAPPING_SIZE);
+			MappedByteBuffer data = file.map(FileChannel.MapMode.READ_ONLY,
+					position, size);
+			crc = RarCRC.checkCrc(crc, data);
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+			position += size;
+			remaining -= size;
+			bytesReadRead((int) size);
 		}
-		if (!hd.isSolid()) {
-			unpack.init(null);
+		if (~crc != hd.getFileCRC()) {
+			throw new RarException(RarExceptionType.crcError);
 		}
-		unpack.setDestSize(hd.getFullUnpackSize());
+	}
+
+	/**
+	 * Returns an {@link InputStream} that will allow to read the file and
+	 * stream it. The file is decoded by the thread reading the stream, every
+	 * read decodes just enough data to fill its buffer. Errors of the decoder
+	 * and a wrong CRC are thrown by the read, closing the stream stops the
+	 * decoding. No other file of the archive may be extracted while the
+	 * stream is open.
+	 * 
+	 * @param hd
+	 *            the header to be extracted
+	 * @throws RarException
+	 * @throws IOException
+	 *             if any IO error occur
+	 */
+	public InputStream getInputStream(FileHeader hd) throws RarException,
+			IOException {
+		if (!containsHeader(hd)) {
+			throw new RarException(RarExceptionType.headerNotInArchive);
+		}
+		return new EntryInputStream(this, hd);
+	}
+
+	private void doExtractFile(FileHeader hd, OutputStream os)
+			throws RarException, IOException {
+		Unpack unpack = startExtraction(hd, os);
 		try {
 			unpack.doUnpack(hd.getUnpVersion(), hd.isSolid());
-			// Verify file CRC
-			hd = dataIO.getSubHeader();
-			long actualCRC = hd.isSplitAfter() ? ~dataIO.getPackedCRC()
-					: ~dataIO.getUnpFileCRC();
-			int expectedCRC = hd.getFileCRC();
-			if (actualCRC != expectedCRC) {
-				throw new RarException(RarExceptionType.crcError);
-			}
-			// if (!hd.isSplitAfter()) {
-			// // Verify file CRC
-			// if(~dataIO.getUnpFileCRC() != hd.getFileCRC()){
-			// throw new RarException(RarExceptionType.crcError);
-			// }
-			// }
+			checkExtraction();
 		} catch (Exception e) {
 			unpack.cleanUp();
 			if (e instanceof RarException) {
@@ -521,7 +1133,81 @@ public class Archive implements Closeable {
 			} else {
 				throw new RarException(e);
 			}
+		} finally {
+			dataIO.stopReadAhead();
+		}
+	}
+
+	/**
+	 * prepares the decoder for the file, its output is written to the stream
+	 */
+	Unpack startExtraction(FileHeader hd, OutputStream os) throws IOException {
+		dataIO.init(os);
+		dataIO.init(hd);
+		dataIO.setUnpFileCRC(this.isOldFormat() ? 0 : 0xffFFffFF);
+		if (unpack == null) {
+			unpack = new Unpack(dataIO, bufferPool);
+		}
+		unpack.setOffHeap(offHeap);
+		if (!hd.isSolid()) {
+			unpack.init(getWindowSize(hd));
+		}
+		unpack.setDestSize(hd.getFullUnpackSize());
+		unpack.setSuspended(false);
+		return unpack;
+	}
+
+	/**
+	 * @return the window for a file which is not solid. The files after it
+	 *         in a solid archive may refer to its whole dictionary, any other
+	 *         file needs no more than its own size. The window is never
+	 *         smaller than {@link Compress#MINWINSIZE}, a filter block of the
+	 *         virtual machine has to fit into the window as a whole.
+	 */
+	private int getWindowSize(FileHeader hd) {
+		int size = Math.max(hd.getDictionarySize(), Compress.MINWINSIZE);
+		if (newMhd != null && !newMhd.isSolid()) {
+			long unpSize = hd.getFullUnpackSize();
+			while (size > Compress.MINWINSIZE && size / 2 >= unpSize) {
+				size /= 2;
+			}
+		}
+		return Math.min(size, Compress.MAXWINSIZE);
+	}
+
+	/**
+	 * verifies the CRC of the file extracted last
+	 */
+	void checkExtraction() throws RarException {
+		FileHeader hd = dataIO.getSubHeader();
+		long actualCRC = hd.isSplitAfter() ? ~dataIO.getPackedCRC()
+				: ~dataIO.getUnpFileCRC();
+		int expectedCRC = hd.getFileCRC();
+		if (actualCRC != expectedCRC) {
+			throw new RarException(RarExceptionType.crcError);
+		}
+		// if (!hd.isSplitAfter()) {
+		// // Verify file CRC
+		// if(~dataIO.getUnpFileCRC() != hd.getFileCRC()){
+		// throw new RarException(RarExceptionType.crcError);
+		// }
+		// }
+	}
+
+	/**
+	 * ends the extraction of a file, also if it was not complete
+	 * 
+	 * @param failed
+	 *            whether the decoder must release its model
+	 */
+	void stopExtraction(boolean failed) throws IOException {
+		if (unpack != null) {
+			unpack.setSuspended(false);
+			if (failed) {
+				unpack.cleanUp();
+			}
 		}
+		dataIO.stopReadAhead();
 	}
 
 	/**
@@ -531,6 +1217,14 @@ public class Archive implements Closeable {
 		return newMhd;
 	}
 
+	/**
+	 * @return the end header of the volume, null if the headers have not been
+	 *         read up to it or the volume has none
+	 */
+	EndArcHeader getEndArcHeader() {
+		return endArcHead;
+	}
+
 	/**
 	 * @return whether the archive is old format
 	 */
@@ -538,15 +1232,104 @@ public class Archive implements Closeable {
 		return markHead.isOldFormat();
 	}
 
-	/** Close the underlying compressed file. */
+	/**
+	 * Close the underlying compressed file and give the buffers of the
+	 * decoder back to the pool.
+	 */
 	public void close() throws IOException {
-		if (rof != null) {
-			rof.close();
-			rof = null;
-		}
+		closeFile();
 		if (unpack != null) {
-			unpack.cleanUp();
+			unpack.release();
+			unpack = null;
+		}
+	}
+
+	/**
+	 * stops the read-ahead of the packed data before the file it reads from
+	 * is closed
+	 */
+	private void closeFile() throws IOException {
+		try {
+			dataIO.stopReadAhead();
+		} finally {
+			if (rof != null) {
+				rof.close();
+				rof = null;
+			}
+		}
+	}
+
+	/**
+	 * @return the pool lending the buffers of the decoder
+	 */
+	public BufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * Sets the pool lending the buffers of the decoder, by default the pool
+	 * shared by all archives. The decoder takes the pool when the first file
+	 * is extracted, or the first file after the archive was closed.
+	 * 
+	 * @param bufferPool
+	 *            the pool
+	 */
+	public void setBufferPool(BufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * @return whether the heap of the PPM model is allocated outside of the
+	 *         java heap
+	 */
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	/**
+	 * Allocates the heap of the PPM model, up to 256 MB for each archive, as
+	 * direct memory outside of the java heap. It is freed when the model
+	 * changes its size and by {@link #close()} instead of waiting for the
+	 * garbage collector. Applies to the next model the decoder starts.
+	 * 
+	 * @param offHeap
+	 *            whether the heap of the model is off the java heap
+	 */
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+	}
+
+	/**
+	 * Lets a background thread read the packed data of a file ahead of the
+	 * decoder, so waiting for the disk or the network overlaps with decoding.
+	 * Files that fit into a single buffer are always read synchronously.
+	 * 
+	 * @param bufferCount
+	 *            the number of buffers read ahead, 0 to disable read-ahead
+	 * @param bufferSize
+	 *            the size of a single buffer
+	 */
+	public void setReadAhead(int bufferCount, int bufferSize) {
+		if (bufferCount < 0 || bufferSize <= 0) {
+			throw new IllegalArgumentException("invalid read-ahead of "
+					+ bufferCount + " buffers of " + bufferSize + " bytes");
 		}
+		this.readAheadBufferCount = bufferCount;
+		this.readAheadBufferSize = bufferSize;
+	}
+
+	/**
+	 * @return the number of buffers read ahead, 0 if read-ahead is disabled
+	 */
+	public int getReadAheadBufferCount() {
+		return readAheadBufferCount;
+	}
+
+	/**
+	 * @return the size of a read-ahead buffer
+	 */
+	public int getReadAheadBufferSize() {
+		return readAheadBufferSize;
 	}
 
 	/**
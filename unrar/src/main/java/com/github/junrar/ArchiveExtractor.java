@@ -0,0 +1,576 @@
+package com.github.junrar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.github.junrar.MultiVolumeCatalog.Entry;
+import com.github.junrar.exception.RarException;
+import com.github.junrar.impl.FileAccessMode;
+import com.github.junrar.impl.FileVolume;
+import com.github.junrar.impl.FileVolumeManager;
+import com.github.junrar.rarfile.FileHeader;
+
+/**
+ * Extracts the files of an archive with a pool of workers. Every worker opens
+ * the volumes through a manager of its own, so it has its own decoder and
+ * reads the packed data without sharing a file position with the others. The
+ * managers share the channels of the volumes. The files of a solid archive
+ * depend on the files before them and are extracted in order by a single
+ * worker, which goes on from volume to volume with the same decoder.
+ *
+ * Unordered, a worker writes a file straight to the stream of the
+ * {@link EntrySink} while decoding it and the files are finished in any
+ * order. Ordered, the workers write the files into pipes of
+ * {@value #PIPE_SIZE} bytes, which the thread calling
+ * {@link #extract(EntrySink)} copies to the sink in the order of the archive.
+ * At most twice as many files as there are workers are decoded at the same
+ * time, a worker waits while the pipe of its file is full.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class ArchiveExtractor {
+
+	/** the size of the pipe of a file in ordered mode */
+	private static final int PIPE_SIZE = 0x40000;
+
+	/** how long a failed extraction waits for the workers to stop */
+	private static final long STOP_TIMEOUT_SECONDS = 60;
+
+	private final FileVolumeManager volumeManager;
+
+	private final int threads;
+
+	private boolean ordered;
+
+	private boolean offHeap;
+
+	private MultiVolumeCatalog catalog;
+
+	/**
+	 * The volumes are read in {@link FileAccessMode#CHANNEL} mode.
+	 *
+	 * @param firstVolume
+	 *            the first volume of the archive
+	 * @param threads
+	 *            the number of workers
+	 */
+	public ArchiveExtractor(File firstVolume, int threads) {
+		this(new FileVolumeManager(firstVolume, FileAccessMode.CHANNEL),
+				threads);
+	}
+
+	/**
+	 * @param volumeManager
+	 *            the manager of the archive, the workers share its channels
+	 *            and settings
+	 * @param threads
+	 *            the number of workers
+	 */
+	public ArchiveExtractor(FileVolumeManager volumeManager, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads " + threads);
+		}
+		this.volumeManager = volumeManager;
+		this.threads = threads;
+	}
+
+	/**
+	 * @return whether the files are written to the sink in the order of the
+	 *         archive
+	 */
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	/**
+	 * @param ordered
+	 *            whether the files are written to the sink in the order of
+	 *            the archive
+	 */
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	/**
+	 * @return whether the workers allocate the heap of the PPM model outside
+	 *         of the java heap
+	 */
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	/**
+	 * @param offHeap
+	 *            whether the workers allocate the heap of the PPM model
+	 *            outside of the java heap
+	 * @see Archive#setOffHeap(boolean)
+	 */
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+	}
+
+	/**
+	 * @return the entries of all volumes, scanned with as many threads as
+	 *         there are workers when called first
+	 */
+	public MultiVolumeCatalog getCatalog() throws RarException, IOException {
+		if (catalog == null) {
+			catalog = MultiVolumeCatalog.scan(volumeManager.getFirstVolume(),
+					threads);
+		}
+		return catalog;
+	}
+
+	/**
+	 * Extracts all files of the archive.
+	 */
+	public void extract(EntrySink sink) throws RarException, IOException {
+		extract(getCatalog().getEntries(), sink);
+	}
+
+	/**
+	 * Extracts the given entries of the catalog. The first failure stops the
+	 * extraction and is thrown once the workers have stopped, or at the
+	 * latest after {@value #STOP_TIMEOUT_SECONDS} seconds. The entries of a
+	 * solid archive must start with its first file.
+	 *
+	 * @param entries
+	 *            the entries in the order of the archive
+	 * @param sink
+	 *            receives the files
+	 */
+	public void extract(List<Entry> entries, EntrySink sink)
+			throws RarException, IOException {
+		int workers = isSolid(entries) ? 1 : Math.max(1,
+				Math.min(threads, entries.size()));
+		Extraction extraction = new Extraction(entries, sink, workers * 2);
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		List<Future<Void>> results = new ArrayList<Future<Void>>();
+		try {
+			for (int i = 0; i < workers; i++) {
+				results.add(executor.submit(extraction.new Worker()));
+			}
+			if (ordered) {
+				extraction.deliver();
+			}
+			for (Future<Void> result : results) {
+				getResult(result);
+			}
+		} finally {
+			extraction.stop();
+			// the workers are not interrupted, that would close the shared
+			// channel they read from
+			executor.shutdown();
+			awaitWorkers(executor);
+		}
+	}
+
+	/**
+	 * waits until the stopped workers have closed their archives and no
+	 * longer write to the sink
+	 */
+	private static void awaitWorkers(ExecutorService executor) {
+		try {
+			executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static boolean isSolid(List<Entry> entries) {
+		for (Entry entry : entries) {
+			if (entry.getFileHeader().isSolid()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void getResult(Future<Void> result) throws RarException,
+			IOException {
+		try {
+			result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RarException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RarException) {
+				throw (RarException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new RarException(e);
+		}
+	}
+
+	/**
+	 * the state of one call of {@link ArchiveExtractor#extract(List, EntrySink)}
+	 * shared by the workers, guarded by its monitor
+	 */
+	private class Extraction {
+
+		private final List<Entry> entries;
+
+		private final EntrySink sink;
+
+		private final boolean ordered;
+
+		/** how many files may be decoded ahead of the ordered delivery */
+		private final int window;
+
+		/** the pipes of the files not delivered yet in ordered mode */
+		private final Pipe[] pipes;
+
+		/** the next entry taken by a worker */
+		private int next;
+
+		/** the number of entries written to the sink in ordered mode */
+		private int delivered;
+
+		private volatile boolean stopped;
+
+		Extraction(List<Entry> entries, EntrySink sink, int window) {
+			this.entries = entries;
+			this.sink = sink;
+			this.ordered = ArchiveExtractor.this.ordered;
+			this.window = window;
+			this.pipes = ordered ? new Pipe[entries.size()] : null;
+		}
+
+		/**
+		 * @return the index of the next entry to extract or -1 if there is
+		 *         none or the extraction stopped
+		 */
+		synchronized int take() throws InterruptedException {
+			while (ordered && !stopped && next < entries.size()
+					&& next >= delivered + window) {
+				wait();
+			}
+			if (stopped || next >= entries.size()) {
+				return -1;
+			}
+			return next++;
+		}
+
+		synchronized void put(int index, Pipe pipe) {
+			pipes[index] = pipe;
+			notifyAll();
+		}
+
+		void stop() {
+			Pipe[] waiting;
+			synchronized (this) {
+				stopped = true;
+				notifyAll();
+				waiting = pipes != null ? pipes.clone() : new Pipe[0];
+			}
+			for (Pipe pipe : waiting) {
+				if (pipe != null) {
+					pipe.wake();
+				}
+			}
+		}
+
+		/**
+		 * copies the files from their pipes to the sink in order until all
+		 * are written or a worker failed
+		 */
+		void deliver() throws RarException, IOException {
+			try {
+				for (int i = 0; i < entries.size(); i++) {
+					Pipe pipe;
+					synchronized (this) {
+						while (pipes[i] == null && !stopped) {
+							wait();
+						}
+						if (stopped) {
+							return;
+						}
+						pipe = pipes[i];
+					}
+					OutputStream out = sink.openEntry(entries.get(i));
+					if (out == null) {
+						pipe.discard();
+					} else {
+						try {
+							if (!pipe.copyTo(out)) {
+								return;
+							}
+						} finally {
+							out.close();
+						}
+					}
+					synchronized (this) {
+						pipes[i] = null;
+						delivered++;
+						notifyAll();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RarException(e);
+			} finally {
+				if (delivered < entries.size()) {
+					stop();
+				}
+			}
+		}
+
+		/**
+		 * extracts entries until there are no more, a failure stops all
+		 * workers
+		 */
+		private class Worker implements Callable<Void> {
+
+			private Archive archive;
+
+			public Void call() throws Exception {
+				boolean completed = false;
+				try {
+					int index;
+					while ((index = take()) >= 0) {
+						extract(index, entries.get(index));
+					}
+					completed = true;
+					return null;
+				} catch (StoppedException e) {
+					// another worker or the delivery failed
+					completed = true;
+					return null;
+				} finally {
+					if (!completed) {
+						stop();
+					}
+					if (archive != null) {
+						archive.close();
+					}
+				}
+			}
+
+			private void extract(int index, Entry entry) throws RarException,
+					IOException {
+				moveTo(entry);
+				FileHeader hd = entry.getFileHeader();
+				if (ordered) {
+					Pipe pipe = new Pipe();
+					put(index, pipe);
+					extractFile(hd, pipe);
+					pipe.close();
+					return;
+				}
+				OutputStream out = sink.openEntry(entry);
+				if (out != null) {
+					try {
+						extractFile(hd, new SinkStream(out));
+					} finally {
+						out.close();
+					}
+				}
+			}
+
+			/**
+			 * opens the volume the entry starts in. A split file leaves the
+			 * archive at its last volume, where the next file starts. The
+			 * worker of a solid archive goes on to the next volumes with the
+			 * same archive, so its decoder keeps the dictionary of the files
+			 * before.
+			 */
+			private void moveTo(Entry entry) throws RarException,
+					IOException {
+				File first = entry.getSegments().get(0).getVolume()
+						.getAbsoluteFile();
+				if (archive != null && first.equals(getFile())) {
+					return;
+				}
+				if (archive != null && entry.getFileHeader().isSolid()) {
+					while (!first.equals(getFile())) {
+						archive.setVolume(archive.getVolumeManager()
+								.nextArchive(archive, archive.getVolume()));
+					}
+					return;
+				}
+				if (archive != null) {
+					archive.close();
+					archive = null;
+				}
+				archive = new Archive(volumeManager.forVolume(first), null,
+						HeaderScanMode.LAZY);
+				archive.setOffHeap(offHeap);
+			}
+
+			private File getFile() {
+				return ((FileVolume) archive.getVolume()).getFile()
+						.getAbsoluteFile();
+			}
+
+			private void extractFile(FileHeader hd, OutputStream out)
+					throws RarException, IOException {
+				try {
+					archive.extractFileOfVolume(hd, out);
+				} catch (RarException e) {
+					if (e.getCause() instanceof StoppedException) {
+						throw (StoppedException) e.getCause();
+					}
+					throw e;
+				}
+			}
+		}
+
+		/**
+		 * the stream of the sink in unordered mode, a write fails once the
+		 * extraction stopped
+		 */
+		private class SinkStream extends OutputStream {
+
+			private final OutputStream out;
+
+			SinkStream(OutputStream out) {
+				this.out = out;
+			}
+
+			@Override
+			public void write(int b) throws IOException {
+				if (stopped) {
+					throw new StoppedException();
+				}
+				out.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				if (stopped) {
+					throw new StoppedException();
+				}
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				out.flush();
+			}
+		}
+
+		/**
+		 * a bounded buffer between the worker decoding a file and the
+		 * delivery in ordered mode, guarded by its monitor
+		 */
+		private class Pipe extends OutputStream {
+
+			private final byte[] buffer = new byte[PIPE_SIZE];
+
+			/** the position of the first byte not read yet */
+			private int start;
+
+			private int count;
+
+			private boolean closed;
+
+			/** the sink skips the file, the data is dropped */
+			private boolean discarded;
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public synchronized void write(byte[] b, int off, int len)
+					throws IOException {
+				while (len > 0) {
+					while (count == buffer.length && !discarded && !stopped) {
+						waitForChange();
+					}
+					if (stopped) {
+						throw new StoppedException();
+					}
+					if (discarded) {
+						return;
+					}
+					int end = (start + count) % buffer.length;
+					int n = Math.min(len, Math.min(buffer.length - count,
+							buffer.length - end));
+					System.arraycopy(b, off, buffer, end, n);
+					count += n;
+					off += n;
+					len -= n;
+					notifyAll();
+				}
+			}
+
+			@Override
+			public synchronized void close() {
+				closed = true;
+				notifyAll();
+			}
+
+			synchronized void discard() {
+				discarded = true;
+				notifyAll();
+			}
+
+			synchronized void wake() {
+				notifyAll();
+			}
+
+			/**
+			 * copies the file to the stream until the worker closed the pipe
+			 *
+			 * @return false if the extraction stopped before
+			 */
+			boolean copyTo(OutputStream out) throws IOException {
+				byte[] chunk = new byte[0x10000];
+				while (true) {
+					int n;
+					synchronized (this) {
+						while (count == 0 && !closed && !stopped) {
+							waitForChange();
+						}
+						if (stopped) {
+							return false;
+						}
+						if (count == 0) {
+							return true;
+						}
+						n = Math.min(chunk.length, Math.min(count,
+								buffer.length - start));
+						System.arraycopy(buffer, start, chunk, 0, n);
+						start = (start + n) % buffer.length;
+						count -= n;
+						notifyAll();
+					}
+					out.write(chunk, 0, n);
+				}
+			}
+
+			private void waitForChange() throws InterruptedIOException {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+		}
+	}
+
+	/**
+	 * thrown into a worker writing to a pipe or the sink once the extraction
+	 * stopped
+	 */
+	private static class StoppedException extends IOException {
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -0,0 +1,178 @@
+package com.github.junrar;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.github.junrar.exception.RarException;
+import com.github.junrar.impl.InputStreamVolumeManager;
+import com.github.junrar.rarfile.FileHeader;
+import com.github.junrar.rarfile.MainHeader;
+
+/**
+ * Reads a rar archive sequentially from an InputStream, like
+ * <code>ZipInputStream</code> does for zip files. The stream is never
+ * seeked backwards and nothing but the current header is kept, so the first
+ * entry can be extracted while the rest of the archive is still arriving.
+ *
+ * <pre>
+ * ArchiveInputStream in = new ArchiveInputStream(stream);
+ * FileHeader hd;
+ * while ((hd = in.nextEntry()) != null) {
+ * 	// read the data of hd from in
+ * }
+ * in.close();
+ * </pre>
+ *
+ * Only single volume archives can be read. The data of an entry is decoded
+ * on the reading thread as it is read, as by
+ * {@link Archive#getInputStream(FileHeader)}, so no more than the window of
+ * the decoder is kept in memory.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class ArchiveInputStream extends InputStream {
+
+	private final Archive archive;
+
+	/** the current entry, null if there is none */
+	private FileHeader entry;
+
+	/** the decoded data of the current entry, null until it is first read */
+	private EntryInputStream entryData;
+
+	/** true once the data of the current entry has been read to the end */
+	private boolean entryDone;
+
+	public ArchiveInputStream(InputStream in) throws RarException, IOException {
+		this(in, null);
+	}
+
+	/**
+	 * @param in
+	 *            the stream holding the archive, closed by {@link #close()}
+	 * @param unrarCallback
+	 *            the callback or null
+	 */
+	public ArchiveInputStream(InputStream in, UnrarCallback unrarCallback)
+			throws RarException, IOException {
+		archive = new Archive(new InputStreamVolumeManager(in), unrarCallback,
+				HeaderScanMode.STREAMING);
+	}
+
+	/**
+	 * Skips the rest of the current entry and reads the header of the next
+	 * one. Entries of a solid archive are decoded while skipping, as the next
+	 * entry depends on them.
+	 *
+	 * @return the header of the next entry or null at the end of the archive
+	 */
+	public FileHeader nextEntry() throws RarException, IOException {
+		closeEntry();
+		entry = archive.readNextFileHeader();
+		entryDone = entry == null || entry.isDirectory();
+		return entry;
+	}
+
+	/**
+	 * Skips the rest of the current entry.
+	 */
+	public void closeEntry() throws IOException {
+		if (entry == null) {
+			return;
+		}
+		if (entryData == null && !entryDone && isSolid()) {
+			startEntry();
+		}
+		try {
+			if (entryData != null && isSolid()) {
+				byte[] buffer = new byte[0x2000];
+				while (read(buffer, 0, buffer.length) != -1) {
+				}
+			}
+		} finally {
+			closeEntryData();
+			entry = null;
+			entryDone = true;
+		}
+	}
+
+	/**
+	 * @return the main header of the archive, null before the first entry
+	 */
+	public MainHeader getMainHeader() {
+		return archive.getMainHeader();
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		int read = read(b, 0, 1);
+		return read == 1 ? b[0] & 0xff : -1;
+	}
+
+	/**
+	 * Reads the data of the current entry.
+	 *
+	 * @return -1 at the end of the entry
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (entryDone) {
+			return -1;
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (entryData == null) {
+			startEntry();
+		}
+		int read = entryData.read(b, off, len);
+		if (read == -1) {
+			entryDone = true;
+		}
+		return read;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			closeEntryData();
+		} finally {
+			entry = null;
+			entryDone = true;
+			archive.close();
+		}
+	}
+
+	private boolean isSolid() {
+		return archive.getMainHeader() != null
+				&& archive.getMainHeader().isSolid();
+	}
+
+	private void startEntry() throws IOException {
+		FileHeader hd = entry;
+		if (hd.isSplitBefore() || hd.isSplitAfter()) {
+			entryDone = true;
+			throw new IOException("entry " + hd.getFileNameString()
+					+ " is split across volumes");
+		}
+		try {
+			entryData = new EntryInputStream(archive, hd);
+		} catch (IOException e) {
+			entryDone = true;
+			throw e;
+		}
+	}
+
+	/**
+	 * stops the decoding of the current entry if it was not read to the end
+	 */
+	private void closeEntryData() throws IOException {
+		if (entryData != null) {
+			EntryInputStream data = entryData;
+			entryData = null;
+			data.close();
+		}
+	}
+}
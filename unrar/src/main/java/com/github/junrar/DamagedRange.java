@@ -0,0 +1,50 @@
+package com.github.junrar;
+
+/**
+ * A region of a volume which could not be read as blocks, reported by an
+ * {@link Archive} in recovery mode.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class DamagedRange {
+
+	private final Volume volume;
+
+	private final long start;
+
+	private final long end;
+
+	public DamagedRange(Volume volume, long start, long end) {
+		this.volume = volume;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * @return the volume of the range
+	 */
+	public Volume getVolume() {
+		return volume;
+	}
+
+	/**
+	 * @return the position of the first damaged byte
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * @return the position after the last damaged byte, where the next valid
+	 *         block starts or the end of the volume
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	@Override
+	public String toString() {
+		return "damaged " + start + "-" + end;
+	}
+}
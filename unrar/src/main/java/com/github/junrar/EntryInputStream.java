@@ -0,0 +1,173 @@
+package com.github.junrar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.github.junrar.exception.RarException;
+import com.github.junrar.rarfile.FileHeader;
+import com.github.junrar.unpack.Unpack;
+
+/**
+ * Reads a file of an archive by driving the decoder of the archive from the
+ * reading thread. The decoder is suspended, so every call of
+ * {@link Unpack#doUnpack(int, boolean)} returns after one flush of its window
+ * and the unpacked data is kept until it has been read.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+class EntryInputStream extends InputStream {
+
+	private final Archive archive;
+
+	private final FileHeader hd;
+
+	private final Unpack unpack;
+
+	/** the data written by the last flush */
+	private byte[] buffer = new byte[0x10000];
+
+	private int position;
+
+	private int count;
+
+	private boolean finished;
+
+	private boolean closed;
+
+	EntryInputStream(Archive archive, FileHeader hd) throws IOException {
+		this.archive = archive;
+		this.hd = hd;
+		this.unpack = archive.startExtraction(hd, new Sink());
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == 1 ? b[0] & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		if (len == 0) {
+			return 0;
+		}
+		int read = 0;
+		while (read < len) {
+			if (position == count && !fill()) {
+				break;
+			}
+			int size = Math.min(len - read, count - position);
+			System.arraycopy(buffer, position, b, off + read, size);
+			position += size;
+			read += size;
+		}
+		return read > 0 ? read : -1;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return count - position;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		ensureOpen();
+		long skipped = 0;
+		while (skipped < n && (position < count || fill())) {
+			int size = (int) Math.min(n - skipped, count - position);
+			position += size;
+			skipped += size;
+		}
+		return skipped;
+	}
+
+	/**
+	 * Stops the decoding, the rest of the file is not read.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			buffer = null;
+			if (!finished) {
+				finished = true;
+				archive.stopExtraction(false);
+			}
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("stream closed");
+		}
+		if (unpack.isReleased()) {
+			// the buffers of the decoder belong to the pool again
+			throw new IOException("archive closed");
+		}
+	}
+
+	/**
+	 * runs the decoder until it has written some data or the file is
+	 * complete
+	 *
+	 * @return false at the end of the file
+	 */
+	private boolean fill() throws IOException {
+		position = 0;
+		count = 0;
+		while (count == 0 && !finished) {
+			try {
+				unpack.doUnpack(hd.getUnpVersion(), hd.isSolid());
+				if (unpack.isFileExtracted()) {
+					finished = true;
+					archive.stopExtraction(false);
+					archive.checkExtraction();
+				}
+			} catch (RarException e) {
+				fail();
+				throw new IOException(e);
+			} catch (IOException e) {
+				fail();
+				throw e;
+			} catch (RuntimeException e) {
+				fail();
+				throw e;
+			}
+		}
+		return count > 0;
+	}
+
+	private void fail() throws IOException {
+		if (!finished) {
+			finished = true;
+			archive.stopExtraction(true);
+		}
+	}
+
+	/**
+	 * keeps the data written by the decoder and suspends it
+	 */
+	private class Sink extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (count + len > buffer.length) {
+				byte[] grown = new byte[Math.max(count + len,
+						buffer.length * 2)];
+				System.arraycopy(buffer, 0, grown, 0, count);
+				buffer = grown;
+			}
+			System.arraycopy(b, off, buffer, count, len);
+			count += len;
+			unpack.setSuspended(true);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.github.junrar;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.github.junrar.MultiVolumeCatalog.Entry;
+
+/**
+ * Receives the files extracted by an {@link ArchiveExtractor}. Unless the
+ * extractor is ordered the methods are called by its workers at the same
+ * time.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public interface EntrySink {
+
+	/**
+	 * @param entry
+	 *            the file about to be extracted
+	 * @return the stream the file is written to, it is closed by the
+	 *         extractor once the file is complete. <code>null</code> skips
+	 *         the file.
+	 * @throws IOException
+	 */
+	OutputStream openEntry(Entry entry) throws IOException;
+}
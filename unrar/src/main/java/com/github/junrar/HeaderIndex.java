@@ -0,0 +1,293 @@
+package com.github.junrar;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.junrar.io.IReadOnlyAccess;
+
+/**
+ * The raw header blocks of one volume together with their positions. The
+ * blocks are recorded while the volume is scanned and stored in a small index
+ * file, reopening the volume then parses the blocks from the index instead of
+ * reading them from the volume. Only the bytes of the headers are kept, the
+ * data of the entries is not.
+ *
+ * An index is only loaded if it was written for a volume of the same path,
+ * length and modification time.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class HeaderIndex {
+
+	/** "JRIX" */
+	private static final int MAGIC = 0x4a524958;
+
+	private static final int VERSION = 1;
+
+	private long[] positions = new long[16];
+
+	private final List<byte[]> blocks = new ArrayList<byte[]>();
+
+	/**
+	 * Adds the next block of the volume.
+	 *
+	 * @param position
+	 *            the position of the block in the volume, larger than the
+	 *            position of the block added before
+	 * @param block
+	 *            the bytes of the block header
+	 */
+	public void add(long position, byte[] block) {
+		int size = blocks.size();
+		if (size > 0 && position < positions[size - 1] + blocks.get(size - 1).length) {
+			throw new IllegalArgumentException("block at " + position
+					+ " overlaps the block before");
+		}
+		if (size == positions.length) {
+			long[] grown = new long[size * 2];
+			System.arraycopy(positions, 0, grown, 0, size);
+			positions = grown;
+		}
+		positions[size] = position;
+		blocks.add(block);
+	}
+
+	/**
+	 * @return the number of blocks
+	 */
+	public int size() {
+		return blocks.size();
+	}
+
+	/**
+	 * @return an access that reads the recorded blocks at their positions in
+	 *         the volume, reading anything else fails. It starts at the first
+	 *         block.
+	 */
+	public IReadOnlyAccess getReadOnlyAccess() {
+		BlockAccess access = new BlockAccess();
+		access.position = blocks.isEmpty() ? 0 : positions[0];
+		return access;
+	}
+
+	/**
+	 * Writes the index to a temporary file which then replaces the given one,
+	 * so a concurrent reader never sees a partial index.
+	 *
+	 * @param file
+	 *            the index file
+	 * @param volumeName
+	 *            the path of the volume
+	 * @param length
+	 *            the length of the volume
+	 * @param lastModified
+	 *            the modification time of the volume
+	 */
+	public void store(File file, String volumeName, long length,
+			long lastModified) throws IOException {
+		File tmp = File.createTempFile("junrar", ".idx",
+				file.getAbsoluteFile().getParentFile());
+		boolean done = false;
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				byte[] name = volumeName.getBytes("UTF-8");
+				out.writeInt(name.length);
+				out.write(name);
+				out.writeLong(length);
+				out.writeLong(lastModified);
+				out.writeInt(blocks.size());
+				for (int i = 0; i < blocks.size(); i++) {
+					byte[] block = blocks.get(i);
+					out.writeLong(positions[i]);
+					out.writeInt(block.length);
+					out.write(block);
+				}
+			} finally {
+				out.close();
+			}
+			if (!tmp.renameTo(file)) {
+				// some platforms do not replace an existing file
+				file.delete();
+				if (!tmp.renameTo(file)) {
+					throw new IOException("could not write index " + file);
+				}
+			}
+			done = true;
+		} finally {
+			if (!done) {
+				tmp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Reads an index file written by
+	 * {@link #store(File, String, long, long)}.
+	 *
+	 * @return the index or <code>null</code> if the file is missing, damaged
+	 *         or was written for a different volume
+	 */
+	public static HeaderIndex load(File file, String volumeName, long length,
+			long lastModified) throws IOException {
+		if (!file.isFile()) {
+			return null;
+		}
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return null;
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) == -1) {
+					return null;
+				}
+			}
+			buffer.flip();
+			return read(buffer, volumeName, length, lastModified);
+		} catch (BufferUnderflowException e) {
+			return null;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static HeaderIndex read(ByteBuffer buffer, String volumeName,
+			long length, long lastModified) throws UnsupportedEncodingException {
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			return null;
+		}
+		int nameLength = buffer.getInt();
+		if (nameLength < 0 || nameLength > buffer.remaining()) {
+			return null;
+		}
+		byte[] name = new byte[nameLength];
+		buffer.get(name);
+		if (!volumeName.equals(new String(name, "UTF-8"))
+				|| buffer.getLong() != length
+				|| buffer.getLong() != lastModified) {
+			return null;
+		}
+		int count = buffer.getInt();
+		HeaderIndex index = new HeaderIndex();
+		long end = 0;
+		for (int i = 0; i < count; i++) {
+			long position = buffer.getLong();
+			int blockLength = buffer.getInt();
+			if (blockLength < 0 || blockLength > buffer.remaining()
+					|| position < end || position > length - blockLength) {
+				// the blocks of a damaged index may overlap
+				return null;
+			}
+			end = position + blockLength;
+			byte[] block = new byte[blockLength];
+			buffer.get(block);
+			index.add(position, block);
+		}
+		return index;
+	}
+
+	/**
+	 * reads the recorded blocks, any read outside of them throws an
+	 * <code>EOFException</code>
+	 */
+	private class BlockAccess implements IReadOnlyAccess {
+
+		private long position;
+
+		/** the block of the last read */
+		private int current;
+
+		public long getPosition() throws IOException {
+			return position;
+		}
+
+		public void setPosition(long pos) throws IOException {
+			position = pos;
+		}
+
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			readFully(b, 1);
+			return b[0] & 0xff;
+		}
+
+		public int read(byte[] buffer, int off, int count) throws IOException {
+			copy(position, buffer, off, count);
+			position += count;
+			return count;
+		}
+
+		public int readFully(byte[] buffer, int count) throws IOException {
+			return read(buffer, 0, count);
+		}
+
+		public int read(ByteBuffer dst, long pos) throws IOException {
+			byte[] tmp = new byte[dst.remaining()];
+			copy(pos, tmp, 0, tmp.length);
+			dst.put(tmp);
+			return tmp.length;
+		}
+
+		public void close() throws IOException {
+		}
+
+		private void copy(long pos, byte[] buffer, int off, int count)
+				throws IOException {
+			int i = find(pos);
+			long offset = pos - positions[i];
+			byte[] block = blocks.get(i);
+			if (offset + count > block.length) {
+				throw new EOFException("no header recorded at " + pos);
+			}
+			System.arraycopy(block, (int) offset, buffer, off, count);
+		}
+
+		/**
+		 * @return the block containing the position
+		 */
+		private int find(long pos) throws IOException {
+			int size = blocks.size();
+			if (current < size && contains(current, pos)) {
+				return current;
+			}
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (positions[mid] > pos) {
+					high = mid - 1;
+				} else if (!contains(mid, pos)) {
+					low = mid + 1;
+				} else {
+					current = mid;
+					return mid;
+				}
+			}
+			throw new EOFException("no header recorded at " + pos);
+		}
+
+		private boolean contains(int i, long pos) {
+			return pos >= positions[i]
+					&& pos < positions[i] + blocks.get(i).length;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.github.junrar;
+
+/**
+ * When an {@link Archive} reads the headers of a volume.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public enum HeaderScanMode {
+
+	/**
+	 * all headers are read when the volume is opened
+	 */
+	EAGER,
+
+	/**
+	 * only the headers up to the main header are read when the volume is
+	 * opened, the others as {@link Archive#nextFileHeader()} advances or when
+	 * all of them are asked for
+	 */
+	LAZY,
+
+	/**
+	 * headers are read as {@link Archive#nextFileHeader()} advances and
+	 * forgotten once the next file header has been read, the volume is only
+	 * read forward
+	 */
+	STREAMING,
+
+	/**
+	 * all headers are read when the volume is opened as in {@link #EAGER},
+	 * but the file headers are kept in a compact
+	 * {@link com.github.junrar.rarfile.FileHeaderCatalog} and a
+	 * {@link com.github.junrar.rarfile.FileHeader} is only created when it is
+	 * asked for
+	 */
+	CATALOG;
+}
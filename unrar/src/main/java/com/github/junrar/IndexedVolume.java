@@ -0,0 +1,29 @@
+package com.github.junrar;
+
+import java.io.IOException;
+
+/**
+ * A volume which keeps a {@link HeaderIndex} of its headers, so that
+ * reopening it does not need to scan the volume again.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public interface IndexedVolume extends Volume {
+
+	/**
+	 * @return the index of the volume or <code>null</code> if there is no
+	 *         valid index
+	 * @throws IOException
+	 */
+	HeaderIndex loadHeaderIndex() throws IOException;
+
+	/**
+	 * Stores the index after the volume has been scanned completely.
+	 *
+	 * @param index
+	 *            the headers of the volume
+	 * @throws IOException
+	 */
+	void storeHeaderIndex(HeaderIndex index) throws IOException;
+}
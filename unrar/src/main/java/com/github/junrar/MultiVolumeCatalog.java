@@ -0,0 +1,359 @@
+package com.github.junrar;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.github.junrar.exception.RarException;
+import com.github.junrar.impl.FileVolumeManager;
+import com.github.junrar.rarfile.EndArcHeader;
+import com.github.junrar.rarfile.FileHeader;
+import com.github.junrar.rarfile.MainHeader;
+import com.github.junrar.util.VolumeHelper;
+
+/**
+ * The entries of all volumes of a multi-volume archive. The volumes are
+ * found by their names, as {@link FileVolumeManager} does, and end with the
+ * volume whose end header announces no next one. Their headers are read in
+ * parallel, each volume by its own {@link Archive}. The parts of
+ * a file split across volumes are merged into one {@link Entry} which lists
+ * the segment of the file in every volume.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class MultiVolumeCatalog {
+
+	private final List<File> volumes;
+
+	private final List<Entry> entries;
+
+	private MultiVolumeCatalog(List<File> volumes, List<Entry> entries) {
+		this.volumes = Collections.unmodifiableList(volumes);
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Scans the volumes with a pool of the given number of threads.
+	 *
+	 * @param firstVolume
+	 *            the first volume of the archive
+	 * @param threads
+	 *            the number of volumes scanned at once
+	 */
+	public static MultiVolumeCatalog scan(File firstVolume, int threads)
+			throws RarException, IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			return scan(firstVolume, executor);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Scans the volumes with the given executor, which is not shut down. The
+	 * end header of every volume tells whether a next volume follows, as
+	 * unrar does; a volume which has no end header is followed by the next
+	 * one if that exists or the file at its end is split.
+	 *
+	 * @param firstVolume
+	 *            the first volume of the archive
+	 * @param executor
+	 *            runs the scan of every volume
+	 * @throws FileNotFoundException
+	 *             if a volume announced by the one before is missing
+	 */
+	public static MultiVolumeCatalog scan(File firstVolume,
+			ExecutorService executor) throws RarException, IOException {
+		// the main header of the first volume tells how the others are named
+		Archive first = new Archive(new FileVolumeManager(firstVolume), null,
+				HeaderScanMode.LAZY);
+		List<File> volumes = new ArrayList<File>();
+		volumes.add(firstVolume);
+		MainHeader mainHeader = first.getMainHeader();
+		boolean oldNumbering = mainHeader != null
+				&& (!mainHeader.isNewNumbering() || first.isOldFormat());
+		// the volumes which exist are scanned at once, their end headers
+		// decide which of them belong to the archive
+		if (mainHeader != null && mainHeader.isMultiVolume()) {
+			String name = firstVolume.getAbsolutePath();
+			while (true) {
+				name = VolumeHelper.nextVolumeName(name, oldNumbering);
+				if (name == null) {
+					break;
+				}
+				File next = new File(name);
+				if (!next.isFile()) {
+					break;
+				}
+				volumes.add(next);
+			}
+		}
+
+		List<VolumeScan> scans = new ArrayList<VolumeScan>();
+		List<Future<List<FileHeader>>> results =
+				new ArrayList<Future<List<FileHeader>>>();
+		try {
+			for (int i = 0; i < volumes.size(); i++) {
+				VolumeScan scan = new VolumeScan(volumes.get(i),
+						i == 0 ? first : null);
+				scans.add(scan);
+				results.add(executor.submit(scan));
+			}
+			List<Entry> entries = new ArrayList<Entry>();
+			Entry split = null;
+			for (int i = 0; i < results.size(); i++) {
+				for (FileHeader hd : getResult(results.get(i))) {
+					Segment segment = new Segment(i, volumes.get(i), hd);
+					if (hd.isSplitBefore() && split != null) {
+						split.segments.add(segment);
+					} else {
+						split = new Entry(segment);
+						entries.add(split);
+					}
+					if (!hd.isSplitAfter()) {
+						split = null;
+					}
+				}
+				boolean found = i + 1 < results.size();
+				EndArcHeader end = scans.get(i).endArcHeader;
+				boolean next = end != null ? end.hasNextVolume()
+						: found || split != null;
+				if (next && !found) {
+					String name = VolumeHelper.nextVolumeName(volumes.get(i)
+							.getAbsolutePath(), oldNumbering);
+					throw new FileNotFoundException(name
+							+ " (missing volume)");
+				}
+				if (!next) {
+					volumes = new ArrayList<File>(volumes.subList(0, i + 1));
+					break;
+				}
+			}
+			return new MultiVolumeCatalog(volumes, entries);
+		} finally {
+			// the first archive is closed by its scan, or here if that never
+			// started
+			for (int i = 0; i < scans.size(); i++) {
+				if (i < results.size()) {
+					results.get(i).cancel(false);
+				}
+				scans.get(i).stop();
+			}
+		}
+	}
+
+	/**
+	 * Reads the file headers of a volume and closes it. A scan which did not
+	 * start before the catalog failed is not started any more.
+	 */
+	private static class VolumeScan implements Callable<List<FileHeader>> {
+
+		private final File volume;
+
+		/** the archive of the first volume, opened before the scan */
+		private final Archive opened;
+
+		/** set by the scan or by {@link #stop()}, whichever comes first */
+		private final AtomicBoolean claimed = new AtomicBoolean();
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		/** the end header of the volume, read by the scan */
+		private EndArcHeader endArcHeader;
+
+		VolumeScan(File volume, Archive opened) {
+			this.volume = volume;
+			this.opened = opened;
+		}
+
+		/**
+		 * @return the file headers of the volume, a damaged volume fails the
+		 *         scan instead of listing the files before the damage only
+		 */
+		public List<FileHeader> call() throws Exception {
+			if (!claimed.compareAndSet(false, true)) {
+				return Collections.emptyList();
+			}
+			try {
+				Archive archive = opened != null ? opened : new Archive(
+						new FileVolumeManager(volume));
+				try {
+					List<FileHeader> headers = archive.getAllFileHeaders();
+					endArcHeader = archive.getEndArcHeader();
+					return headers;
+				} finally {
+					archive.close();
+				}
+			} finally {
+				done.countDown();
+			}
+		}
+
+		/**
+		 * keeps the scan from starting, or waits until it closed its volume
+		 */
+		void stop() throws IOException {
+			if (claimed.compareAndSet(false, true)) {
+				if (opened != null) {
+					opened.close();
+				}
+				return;
+			}
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static List<FileHeader> getResult(Future<List<FileHeader>> scan)
+			throws RarException, IOException {
+		try {
+			return scan.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RarException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RarException) {
+				throw (RarException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new RarException(e);
+		}
+	}
+
+	/**
+	 * @return the volumes of the archive in order
+	 */
+	public List<File> getVolumes() {
+		return volumes;
+	}
+
+	/**
+	 * @return the entries of all volumes, a split file is listed once
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * A file of the archive with its segments in one or more volumes.
+	 */
+	public static class Entry {
+
+		private final List<Segment> segments = new ArrayList<Segment>();
+
+		private Entry(Segment first) {
+			segments.add(first);
+		}
+
+		/**
+		 * @return the header of the first segment
+		 */
+		public FileHeader getFileHeader() {
+			return segments.get(0).getFileHeader();
+		}
+
+		public String getFileNameString() {
+			return getFileHeader().getFileNameString();
+		}
+
+		/**
+		 * @return the unpacked size, as stored in the first segment
+		 */
+		public long getFullUnpackSize() {
+			return getFileHeader().getFullUnpackSize();
+		}
+
+		/**
+		 * @return the sum of the packed sizes of the segments
+		 */
+		public long getFullPackSize() {
+			long size = 0;
+			for (Segment segment : segments) {
+				size += segment.getFileHeader().getFullPackSize();
+			}
+			return size;
+		}
+
+		/**
+		 * @return whether the file starts in its first segment and ends in
+		 *         its last one, false if a volume is missing
+		 */
+		public boolean isComplete() {
+			return !segments.get(0).getFileHeader().isSplitBefore()
+					&& !segments.get(segments.size() - 1).getFileHeader()
+							.isSplitAfter();
+		}
+
+		/**
+		 * @return the segments in the order of the volumes
+		 */
+		public List<Segment> getSegments() {
+			return Collections.unmodifiableList(segments);
+		}
+	}
+
+	/**
+	 * The part of a file stored in one volume.
+	 */
+	public static class Segment {
+
+		private final int volumeIndex;
+
+		private final File volume;
+
+		private final FileHeader fileHeader;
+
+		private Segment(int volumeIndex, File volume, FileHeader fileHeader) {
+			this.volumeIndex = volumeIndex;
+			this.volume = volume;
+			this.fileHeader = fileHeader;
+		}
+
+		/**
+		 * @return the index of the volume, 0 for the first volume
+		 */
+		public int getVolumeIndex() {
+			return volumeIndex;
+		}
+
+		public File getVolume() {
+			return volume;
+		}
+
+		public FileHeader getFileHeader() {
+			return fileHeader;
+		}
+
+		/**
+		 * @return the position of the packed data in the volume
+		 */
+		public long getDataPosition() {
+			return fileHeader.getPositionInFile() + fileHeader.getHeaderSize();
+		}
+
+		/**
+		 * @return the length of the packed data in the volume
+		 */
+		public long getDataSize() {
+			return fileHeader.getFullPackSize();
+		}
+	}
+}
@@ -17,6 +17,8 @@
  */
 package com.github.junrar.crc;
 
+import java.nio.ByteBuffer;
+
 
 /**
  * DOCUMENT ME
@@ -118,6 +120,22 @@ public class RarCRC {
 		return (startCrc);
 	}
 
+	/**
+	 * Computes the crc over the remaining bytes of the buffer without
+	 * changing its position.
+	 */
+	public static int checkCrc(int startCrc, ByteBuffer data) {
+		if (data.hasArray()) {
+			return checkCrc(startCrc, data.array(), data.arrayOffset()
+					+ data.position(), data.remaining());
+		}
+		for (int i = data.position(), end = data.limit(); i < end; i++) {
+			startCrc = crcTab[(startCrc ^ data.get(i)) & 0xff]
+					^ (startCrc >>> 8);
+		}
+		return startCrc;
+	}
+
 	public static short checkOldCrc(short startCrc, byte[] data, int count) {
         int n = Math.min(data.length, count);
 		for (int i = 0; i < n; i++) {
@@ -0,0 +1,62 @@
+package com.github.junrar.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.github.junrar.Archive;
+import com.github.junrar.Volume;
+import com.github.junrar.io.IReadOnlyAccess;
+import com.github.junrar.io.ReadOnlyAccessByteBuffer;
+
+/**
+ * A volume held in memory in one or more ByteBuffers.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class ByteBufferVolume implements Volume {
+	private final Archive archive;
+	private final ByteBuffer[] buffers;
+	private final int index;
+	private final long length;
+
+	/**
+	 * @param archive
+	 * @param index
+	 *            the number of the volume, starting at 0
+	 * @param buffers
+	 *            the data of the volume, in order
+	 */
+	public ByteBufferVolume(Archive archive, int index, ByteBuffer... buffers) {
+		this.archive = archive;
+		this.index = index;
+		this.buffers = buffers;
+		long length = 0;
+		for (ByteBuffer buffer : buffers) {
+			length += buffer.remaining();
+		}
+		this.length = length;
+	}
+
+	@Override
+	public IReadOnlyAccess getReadOnlyAccess() throws IOException {
+		return new ReadOnlyAccessByteBuffer(buffers);
+	}
+
+	@Override
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public Archive getArchive() {
+		return archive;
+	}
+
+	/**
+	 * @return the number of the volume, starting at 0
+	 */
+	public int getIndex() {
+		return index;
+	}
+}
@@ -0,0 +1,52 @@
+package com.github.junrar.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.junrar.Archive;
+import com.github.junrar.Volume;
+import com.github.junrar.VolumeManager;
+
+/**
+ * Provides the volumes of an archive held in memory. Each volume is given as
+ * one or more ByteBuffers, heap or direct, so volumes larger than 2 GB can be
+ * held as well.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class ByteBufferVolumeManager implements VolumeManager {
+	private final List<ByteBuffer[]> volumes;
+
+	/**
+	 * @param volumes
+	 *            the volumes in order, one buffer each
+	 */
+	public ByteBufferVolumeManager(ByteBuffer... volumes) {
+		this.volumes = new ArrayList<ByteBuffer[]>(volumes.length);
+		for (ByteBuffer volume : volumes) {
+			this.volumes.add(new ByteBuffer[] { volume });
+		}
+	}
+
+	/**
+	 * @param volumes
+	 *            the volumes in order, each given as the buffers holding its
+	 *            data
+	 */
+	public ByteBufferVolumeManager(List<ByteBuffer[]> volumes) {
+		this.volumes = new ArrayList<ByteBuffer[]>(volumes);
+	}
+
+	@Override
+	public Volume nextArchive(Archive archive, Volume last)
+			throws IOException {
+		int index = last == null ? 0 : ((ByteBufferVolume) last).getIndex() + 1;
+		if (index >= volumes.size()) {
+			return null;
+		}
+		return new ByteBufferVolume(archive, index, volumes.get(index));
+	}
+}
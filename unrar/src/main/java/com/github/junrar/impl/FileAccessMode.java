@@ -0,0 +1,26 @@
+package com.github.junrar.impl;
+
+/**
+ * How a {@link FileVolume} reads its file.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public enum FileAccessMode {
+
+	/**
+	 * block buffered reads through a <code>RandomAccessFile</code>
+	 */
+	BUFFERED,
+
+	/**
+	 * the file is memory mapped in segments
+	 */
+	MAPPED,
+
+	/**
+	 * positional reads on one file descriptor shared by all readers of the
+	 * volume
+	 */
+	CHANNEL;
+}
@@ -22,7 +22,9 @@ import java.io.IOException;
 import com.github.junrar.Archive;
 import com.github.junrar.Volume;
 import com.github.junrar.io.IReadOnlyAccess;
-import com.github.junrar.io.ReadOnlyAccessFile;
+import com.github.junrar.io.BufferedReadOnlyAccessFile;
+import com.github.junrar.io.MappedReadOnlyAccessFile;
+import com.github.junrar.io.ReadOnlyAccessFileChannel;
 
 
 /**
@@ -32,18 +34,49 @@ import com.github.junrar.io.ReadOnlyAccessFile;
 public class FileVolume implements Volume {
 	private final Archive archive;
 	private final File file;
+	private final FileAccessMode mode;
+	private final FileVolumeManager manager;
 
 	/**
 	 * @param file
 	 */
 	public FileVolume(Archive archive, File file) {
+		this(archive, file, FileAccessMode.BUFFERED);
+	}
+
+	/**
+	 * @param file
+	 * @param mode
+	 *            how the file is read
+	 */
+	public FileVolume(Archive archive, File file, FileAccessMode mode) {
+		this(archive, file, mode, null);
+	}
+
+	/**
+	 * @param manager
+	 *            shares the channels of the volumes, null for a channel of
+	 *            its own
+	 */
+	FileVolume(Archive archive, File file, FileAccessMode mode,
+			FileVolumeManager manager) {
 		this.archive = archive;
 		this.file = file;
+		this.mode = mode;
+		this.manager = manager;
 	}
 
 	@Override
 	public IReadOnlyAccess getReadOnlyAccess() throws IOException {
-		return new ReadOnlyAccessFile(file);
+		switch (mode) {
+		case MAPPED:
+			return new MappedReadOnlyAccessFile(file);
+		case CHANNEL:
+			return manager != null ? manager.openChannel(file)
+					: new ReadOnlyAccessFileChannel(file);
+		default:
+			return new BufferedReadOnlyAccessFile(file);
+		}
 	}
 
 	@Override
@@ -62,4 +95,11 @@ public class FileVolume implements Volume {
 	public File getFile() {
 		return file;
 	}
+
+	/**
+	 * @return how the file is read
+	 */
+	public FileAccessMode getMode() {
+		return mode;
+	}
 }
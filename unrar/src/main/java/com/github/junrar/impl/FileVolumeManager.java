@@ -18,10 +18,15 @@ package com.github.junrar.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.github.junrar.Archive;
 import com.github.junrar.Volume;
 import com.github.junrar.VolumeManager;
+import com.github.junrar.io.IReadOnlyAccess;
+import com.github.junrar.io.ReadOnlyAccessFileChannel;
+import com.github.junrar.io.SharedFileChannel;
 import com.github.junrar.util.VolumeHelper;
 
 
@@ -31,16 +36,63 @@ import com.github.junrar.util.VolumeHelper;
  */
 public class FileVolumeManager implements VolumeManager {
 	private final File firstVolume;
+	private final FileAccessMode mode;
+	private boolean headerIndexed;
+	private File indexDirectory;
+
+	/**
+	 * the channels of the volumes read in {@link FileAccessMode#CHANNEL},
+	 * shared with the managers of {@link #forVolume(File)} and guarded by
+	 * its monitor
+	 */
+	private final Map<File, SharedFileChannel> channels;
 
 	public FileVolumeManager(File firstVolume) {
+		this(firstVolume, FileAccessMode.BUFFERED);
+	}
+
+	/**
+	 * @param firstVolume
+	 * @param mode
+	 *            how the volume files are read
+	 */
+	public FileVolumeManager(File firstVolume, FileAccessMode mode) {
+		this(firstVolume, mode, new HashMap<File, SharedFileChannel>());
+	}
+
+	private FileVolumeManager(File firstVolume, FileAccessMode mode,
+			Map<File, SharedFileChannel> channels) {
 		this.firstVolume = firstVolume;
+		this.mode = mode;
+		this.channels = channels;
+	}
+
+	/**
+	 * @param volume
+	 *            a volume of the same archive
+	 * @return a manager which opens the given volume first and shares the
+	 *         channels and the settings of this manager
+	 */
+	public FileVolumeManager forVolume(File volume) {
+		FileVolumeManager manager = new FileVolumeManager(volume, mode,
+				channels);
+		manager.headerIndexed = headerIndexed;
+		manager.indexDirectory = indexDirectory;
+		return manager;
+	}
+
+	/**
+	 * @return the volume opened first
+	 */
+	public File getFirstVolume() {
+		return firstVolume;
 	}
 
 	@Override
 	public Volume nextArchive(Archive archive, Volume last)
 			throws IOException {
 		if (last == null)
-			return new FileVolume(archive, firstVolume);
+			return createVolume(archive, firstVolume);
 
 		FileVolume lastFileVolume = (FileVolume) last;
 		boolean oldNumbering = !archive.getMainHeader().isNewNumbering()
@@ -49,6 +101,70 @@ public class FileVolumeManager implements VolumeManager {
 				.getAbsolutePath(), oldNumbering);
 		File nextVolume = new File(nextName);
 
-		return new FileVolume(archive, nextVolume);
+		return createVolume(archive, nextVolume);
+	}
+
+	private FileVolume createVolume(Archive archive, File file) {
+		if (headerIndexed) {
+			return new IndexedFileVolume(archive, file, mode, indexDirectory,
+					this);
+		}
+		return new FileVolume(archive, file, mode, this);
+	}
+
+	/**
+	 * All cursors on a volume share one channel, also those of different
+	 * archives opened with this manager. The channel is reopened once the
+	 * last cursor has been closed.
+	 */
+	IReadOnlyAccess openChannel(File file) throws IOException {
+		File key = file.getAbsoluteFile();
+		synchronized (channels) {
+			SharedFileChannel channel = channels.get(key);
+			if (channel == null || !channel.retain()) {
+				channel = new SharedFileChannel(file);
+				channels.put(key, channel);
+				return new ReadOnlyAccessFileChannel(channel);
+			}
+			try {
+				return new ReadOnlyAccessFileChannel(channel);
+			} finally {
+				channel.release();
+			}
+		}
+	}
+
+	/**
+	 * @return whether the headers of the volumes are kept in index files
+	 */
+	public boolean isHeaderIndexed() {
+		return headerIndexed;
+	}
+
+	/**
+	 * @param headerIndexed
+	 *            whether the headers of each volume are stored in an index
+	 *            file after the first scan and read from it when the archive
+	 *            is opened again
+	 */
+	public void setHeaderIndexed(boolean headerIndexed) {
+		this.headerIndexed = headerIndexed;
+	}
+
+	/**
+	 * @return where the index files are kept, <code>null</code> for the
+	 *         directory of each volume
+	 */
+	public File getIndexDirectory() {
+		return indexDirectory;
+	}
+
+	/**
+	 * @param indexDirectory
+	 *            where the index files are kept, <code>null</code> for the
+	 *            directory of each volume
+	 */
+	public void setIndexDirectory(File indexDirectory) {
+		this.indexDirectory = indexDirectory;
 	}
 }
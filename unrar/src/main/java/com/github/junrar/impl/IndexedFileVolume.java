@@ -0,0 +1,67 @@
+package com.github.junrar.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.github.junrar.Archive;
+import com.github.junrar.HeaderIndex;
+import com.github.junrar.IndexedVolume;
+
+/**
+ * A file volume whose header index is kept in a file named after the volume.
+ * The index is valid as long as the volume keeps its length and modification
+ * time.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class IndexedFileVolume extends FileVolume implements IndexedVolume {
+
+	/** the extension appended to the name of the volume */
+	public static final String INDEX_EXTENSION = ".jrx";
+
+	private final File indexDirectory;
+
+	/**
+	 * @param file
+	 * @param mode
+	 *            how the file is read
+	 * @param indexDirectory
+	 *            where the index file is kept, <code>null</code> for the
+	 *            directory of the volume
+	 */
+	public IndexedFileVolume(Archive archive, File file, FileAccessMode mode,
+			File indexDirectory) {
+		this(archive, file, mode, indexDirectory, null);
+	}
+
+	IndexedFileVolume(Archive archive, File file, FileAccessMode mode,
+			File indexDirectory, FileVolumeManager manager) {
+		super(archive, file, mode, manager);
+		this.indexDirectory = indexDirectory;
+	}
+
+	@Override
+	public HeaderIndex loadHeaderIndex() throws IOException {
+		File file = getFile();
+		return HeaderIndex.load(getIndexFile(), file.getAbsolutePath(),
+				file.length(), file.lastModified());
+	}
+
+	@Override
+	public void storeHeaderIndex(HeaderIndex index) throws IOException {
+		File file = getFile();
+		index.store(getIndexFile(), file.getAbsolutePath(), file.length(),
+				file.lastModified());
+	}
+
+	/**
+	 * @return the file holding the index of this volume
+	 */
+	public File getIndexFile() {
+		File file = getFile().getAbsoluteFile();
+		File directory = indexDirectory != null ? indexDirectory : file
+				.getParentFile();
+		return new File(directory, file.getName() + INDEX_EXTENSION);
+	}
+}
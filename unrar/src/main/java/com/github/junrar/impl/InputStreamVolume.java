@@ -0,0 +1,47 @@
+package com.github.junrar.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.github.junrar.Archive;
+import com.github.junrar.Volume;
+import com.github.junrar.io.IReadOnlyAccess;
+import com.github.junrar.io.SequentialReadOnlyAccess;
+
+/**
+ * A volume read forward only from an InputStream. Its length is not known,
+ * the headers are read until the end of the stream or the end of archive
+ * block.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class InputStreamVolume implements Volume {
+	private final Archive archive;
+	private final InputStream is;
+
+	/**
+	 * @param archive
+	 * @param is
+	 *            the stream holding the volume
+	 */
+	public InputStreamVolume(Archive archive, InputStream is) {
+		this.archive = archive;
+		this.is = is;
+	}
+
+	@Override
+	public IReadOnlyAccess getReadOnlyAccess() throws IOException {
+		return new SequentialReadOnlyAccess(is);
+	}
+
+	@Override
+	public long getLength() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public Archive getArchive() {
+		return archive;
+	}
+}
@@ -0,0 +1,35 @@
+package com.github.junrar.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.github.junrar.Archive;
+import com.github.junrar.Volume;
+import com.github.junrar.VolumeManager;
+
+/**
+ * Provides a single {@link InputStreamVolume}, there is no next volume.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class InputStreamVolumeManager implements VolumeManager {
+	private final InputStream is;
+
+	/**
+	 * @param is
+	 *            the stream holding the archive
+	 */
+	public InputStreamVolumeManager(InputStream is) {
+		this.is = is;
+	}
+
+	@Override
+	public Volume nextArchive(Archive archive, Volume last)
+			throws IOException {
+		if (last == null) {
+			return new InputStreamVolume(archive, is);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,133 @@
+package com.github.junrar.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.github.junrar.Archive;
+import com.github.junrar.Volume;
+import com.github.junrar.io.BlockCachedReadOnlyAccess;
+import com.github.junrar.io.IRangeSource;
+import com.github.junrar.io.IRangeSourceFactory;
+import com.github.junrar.io.IReadOnlyAccess;
+
+/**
+ * A volume read from a byte range addressable source, for example an object
+ * in a remote store. Only the blocks actually read are fetched.
+ *
+ * The accesses open at the same time share the source and its block cache.
+ * Once the last of them is closed the source is closed, and the next access
+ * opens it again through the factory.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class RangeVolume implements Volume {
+	private final Archive archive;
+	private final String name;
+	private final IRangeSourceFactory factory;
+	private final long length;
+	private final int blockSize;
+	private final int memoryBlocks;
+	private final File cacheDirectory;
+
+	/** the source not read yet by an access, null once it is */
+	private IRangeSource source;
+
+	/** the access opened last, its cache is shared while it is open */
+	private BlockCachedReadOnlyAccess access;
+
+	/**
+	 * @param archive
+	 * @param name
+	 *            the name of the volume
+	 * @param source
+	 *            the source of the volume, closed with the last access. It
+	 *            cannot be opened again once closed.
+	 * @param blockSize
+	 *            the size of a cached block
+	 * @param memoryBlocks
+	 *            the number of blocks kept in memory
+	 * @param cacheDirectory
+	 *            where to create the disk cache, <code>null</code> to cache
+	 *            in memory only
+	 * @throws IOException
+	 */
+	public RangeVolume(Archive archive, String name, IRangeSource source,
+			int blockSize, int memoryBlocks, File cacheDirectory)
+			throws IOException {
+		this(archive, name, null, source, blockSize, memoryBlocks,
+				cacheDirectory);
+	}
+
+	/**
+	 * @param archive
+	 * @param name
+	 *            the name of the volume
+	 * @param factory
+	 *            opens the source again once all accesses have been closed
+	 * @param source
+	 *            the source of the volume opened by the factory
+	 * @param blockSize
+	 *            the size of a cached block
+	 * @param memoryBlocks
+	 *            the number of blocks kept in memory
+	 * @param cacheDirectory
+	 *            where to create the disk cache, <code>null</code> to cache
+	 *            in memory only
+	 * @throws IOException
+	 */
+	public RangeVolume(Archive archive, String name,
+			IRangeSourceFactory factory, IRangeSource source, int blockSize,
+			int memoryBlocks, File cacheDirectory) throws IOException {
+		this.archive = archive;
+		this.name = name;
+		this.factory = factory;
+		this.source = source;
+		this.length = source.getLength();
+		this.blockSize = blockSize;
+		this.memoryBlocks = memoryBlocks;
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	@Override
+	public synchronized IReadOnlyAccess getReadOnlyAccess()
+			throws IOException {
+		BlockCachedReadOnlyAccess shared = access != null ? access.share()
+				: null;
+		if (shared != null) {
+			return shared;
+		}
+		IRangeSource next = source;
+		source = null;
+		if (next == null) {
+			if (factory == null) {
+				throw new IOException("the source of " + name
+						+ " has been closed");
+			}
+			next = factory.open(name);
+			if (next == null) {
+				throw new IOException("volume " + name + " not found");
+			}
+		}
+		access = new BlockCachedReadOnlyAccess(next, blockSize, memoryBlocks,
+				cacheDirectory);
+		return access;
+	}
+
+	@Override
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public Archive getArchive() {
+		return archive;
+	}
+
+	/**
+	 * @return the name of the volume
+	 */
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,81 @@
+package com.github.junrar.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.github.junrar.Archive;
+import com.github.junrar.Volume;
+import com.github.junrar.VolumeManager;
+import com.github.junrar.io.BlockCachedReadOnlyAccess;
+import com.github.junrar.io.IRangeSource;
+import com.github.junrar.io.IRangeSourceFactory;
+import com.github.junrar.util.VolumeHelper;
+
+/**
+ * Provides {@link RangeVolume}s opened by name from an
+ * {@link IRangeSourceFactory}. The names of the following volumes are derived
+ * from the name of the first one as for files.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class RangeVolumeManager implements VolumeManager {
+	private final IRangeSourceFactory factory;
+	private final String firstVolume;
+	private final int blockSize;
+	private final int memoryBlocks;
+	private final File cacheDirectory;
+
+	/**
+	 * @param factory
+	 *            opens the volumes
+	 * @param firstVolume
+	 *            the name of the first volume
+	 */
+	public RangeVolumeManager(IRangeSourceFactory factory, String firstVolume) {
+		this(factory, firstVolume, BlockCachedReadOnlyAccess.DEFAULT_BLOCK_SIZE,
+				BlockCachedReadOnlyAccess.DEFAULT_MEMORY_BLOCKS, null);
+	}
+
+	/**
+	 * @param factory
+	 *            opens the volumes
+	 * @param firstVolume
+	 *            the name of the first volume
+	 * @param blockSize
+	 *            the size of a cached block
+	 * @param memoryBlocks
+	 *            the number of blocks kept in memory per volume
+	 * @param cacheDirectory
+	 *            where to create the disk caches, <code>null</code> to cache
+	 *            in memory only
+	 */
+	public RangeVolumeManager(IRangeSourceFactory factory, String firstVolume,
+			int blockSize, int memoryBlocks, File cacheDirectory) {
+		this.factory = factory;
+		this.firstVolume = firstVolume;
+		this.blockSize = blockSize;
+		this.memoryBlocks = memoryBlocks;
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	@Override
+	public Volume nextArchive(Archive archive, Volume last)
+			throws IOException {
+		String name;
+		if (last == null) {
+			name = firstVolume;
+		} else {
+			boolean oldNumbering = !archive.getMainHeader().isNewNumbering()
+					|| archive.isOldFormat();
+			name = VolumeHelper.nextVolumeName(((RangeVolume) last).getName(),
+					oldNumbering);
+		}
+		IRangeSource source = factory.open(name);
+		if (source == null) {
+			return null;
+		}
+		return new RangeVolume(archive, name, factory, source, blockSize,
+				memoryBlocks, cacheDirectory);
+	}
+}
@@ -0,0 +1,377 @@
+package com.github.junrar.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads an {@link IRangeSource} in fixed size blocks which are kept in a least
+ * recently used cache. Adjacent blocks missing for one read are fetched with
+ * a single range request. Optionally every fetched block is also kept in a
+ * temporary file, so blocks dropped from memory need not be fetched again.
+ *
+ * {@link #share()} opens further accesses on the same cache. The cache may be
+ * read from several threads, the position of an access must only be used by
+ * one. Closing the last access of a cache closes the source and deletes the
+ * temporary file.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class BlockCachedReadOnlyAccess implements IReadOnlyAccess {
+
+	/**
+	 * the default size of a block (256 KB)
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 0x40000;
+
+	/**
+	 * the default number of blocks kept in memory
+	 */
+	public static final int DEFAULT_MEMORY_BLOCKS = 64;
+
+	/** the most blocks fetched with one request */
+	private static final int MAX_COALESCED_BLOCKS = 16;
+
+	private final BlockCache cache;
+
+	private final long length;
+
+	private final int blockSize;
+
+	private long position;
+
+	private boolean closed;
+
+	/**
+	 * @param source
+	 *            the source to read
+	 * @throws IOException
+	 */
+	public BlockCachedReadOnlyAccess(IRangeSource source) throws IOException {
+		this(source, DEFAULT_BLOCK_SIZE, DEFAULT_MEMORY_BLOCKS, null);
+	}
+
+	/**
+	 * @param source
+	 *            the source to read
+	 * @param blockSize
+	 *            the size of a block
+	 * @param memoryBlocks
+	 *            the number of blocks kept in memory
+	 * @param cacheDirectory
+	 *            where to create the disk cache, <code>null</code> to cache
+	 *            in memory only
+	 * @throws IOException
+	 *             if the source or the disk cache cannot be opened, the
+	 *             source is closed then
+	 */
+	public BlockCachedReadOnlyAccess(IRangeSource source, int blockSize,
+			int memoryBlocks, File cacheDirectory) throws IOException {
+		this(new BlockCache(source, blockSize, memoryBlocks, cacheDirectory));
+	}
+
+	private BlockCachedReadOnlyAccess(BlockCache cache) {
+		this.cache = cache;
+		this.length = cache.length;
+		this.blockSize = cache.blockSize;
+	}
+
+	/**
+	 * Opens another access on the cache of this one, with its own position.
+	 * 
+	 * @return the access or <code>null</code> if all accesses of the cache
+	 *         have been closed and the source is closed
+	 */
+	public BlockCachedReadOnlyAccess share() {
+		return cache.addReference() ? new BlockCachedReadOnlyAccess(cache)
+				: null;
+	}
+
+	/**
+	 * @return the length of the source
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	public long getPosition() throws IOException {
+		return position;
+	}
+
+	public void setPosition(long pos) throws IOException {
+		if (pos < 0) {
+			throw new EOFException();
+		}
+		position = pos;
+	}
+
+	public int read() throws IOException {
+		if (closed) {
+			throw new IOException("access closed");
+		}
+		if (position >= length) {
+			return -1;
+		}
+		byte[] block = cache.getBlock(position / blockSize);
+		return block[(int) (position++ % blockSize)] & 0xff;
+	}
+
+	public int read(byte[] buffer, int off, int count) throws IOException {
+		int read = read(position, buffer, off, count);
+		if (read > 0) {
+			position += read;
+		}
+		return read;
+	}
+
+	public int readFully(byte[] buffer, int count) throws IOException {
+		int read = 0;
+		while (read < count) {
+			int n = read(buffer, read, count - read);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			read += n;
+		}
+		return count;
+	}
+
+	public int read(ByteBuffer dst, long pos) throws IOException {
+		if (dst.hasArray()) {
+			int read = read(pos, dst.array(), dst.arrayOffset()
+					+ dst.position(), dst.remaining());
+			if (read > 0) {
+				dst.position(dst.position() + read);
+			}
+			return read;
+		}
+		byte[] tmp = new byte[dst.remaining()];
+		int read = read(pos, tmp, 0, tmp.length);
+		if (read > 0) {
+			dst.put(tmp, 0, read);
+		}
+		return read;
+	}
+
+	/**
+	 * Copies up to <tt>count</tt> bytes starting at the given position, the
+	 * blocks are fetched as needed. A read copies at most the blocks which
+	 * fit into memory at once, so none is dropped before it is copied.
+	 */
+	private int read(long pos, byte[] buffer, int off, int count)
+			throws IOException {
+		if (closed) {
+			throw new IOException("access closed");
+		}
+		if (count == 0) {
+			return 0;
+		}
+		if (pos >= length) {
+			return -1;
+		}
+		count = (int) Math.min(count, length - pos);
+		count = (int) Math.min(count, cache.memorySize - pos % blockSize);
+		cache.fetch(pos, count);
+		int read = 0;
+		while (read < count) {
+			byte[] block = cache.getBlock((pos + read) / blockSize);
+			int offset = (int) ((pos + read) % blockSize);
+			int n = Math.min(count - read, block.length - offset);
+			System.arraycopy(block, offset, buffer, off + read, n);
+			read += n;
+		}
+		return read;
+	}
+
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			cache.removeReference();
+		}
+	}
+
+	/**
+	 * the blocks of a source shared by the accesses opened with
+	 * {@link BlockCachedReadOnlyAccess#share()}, guarded by its monitor
+	 */
+	private static class BlockCache {
+
+		private final IRangeSource source;
+
+		private final long length;
+
+		private final int blockSize;
+
+		/** the bytes of the blocks kept in memory */
+		private final long memorySize;
+
+		private final Map<Long, byte[]> blocks;
+
+		private File diskFile;
+
+		private RandomAccessFile disk;
+
+		/** the blocks stored in the disk file */
+		private final BitSet onDisk = new BitSet();
+
+		/** the number of open accesses, the source is closed at 0 */
+		private int references = 1;
+
+		BlockCache(IRangeSource source, int blockSize, final int memoryBlocks,
+				File cacheDirectory) throws IOException {
+			if (blockSize <= 0 || memoryBlocks <= 0) {
+				throw new IllegalArgumentException("invalid cache of "
+						+ memoryBlocks + " blocks of " + blockSize + " bytes");
+			}
+			this.source = source;
+			this.blockSize = blockSize;
+			this.memorySize = (long) memoryBlocks * blockSize;
+			this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<Long, byte[]> eldest) {
+					return size() > memoryBlocks;
+				}
+			};
+			// the cache owns the source from here on, also if it fails
+			boolean opened = false;
+			try {
+				this.length = source.getLength();
+				if (cacheDirectory != null) {
+					diskFile = File.createTempFile("junrar", ".cache",
+							cacheDirectory);
+					disk = new RandomAccessFile(diskFile, "rw");
+				}
+				opened = true;
+			} finally {
+				if (!opened) {
+					if (diskFile != null) {
+						diskFile.delete();
+					}
+					source.close();
+				}
+			}
+		}
+
+		synchronized boolean addReference() {
+			if (references == 0) {
+				return false;
+			}
+			references++;
+			return true;
+		}
+
+		void removeReference() throws IOException {
+			synchronized (this) {
+				if (--references > 0) {
+					return;
+				}
+				blocks.clear();
+				if (disk != null) {
+					disk.close();
+					disk = null;
+					diskFile.delete();
+				}
+			}
+			source.close();
+		}
+
+		/**
+		 * @return the block with the given index, fetched if not cached
+		 */
+		synchronized byte[] getBlock(long index) throws IOException {
+			byte[] block = blocks.get(index);
+			if (block == null) {
+				block = readFromDisk(index);
+				if (block == null) {
+					fetchBlocks(index, 1);
+					block = blocks.get(index);
+				} else {
+					blocks.put(index, block);
+				}
+			}
+			return block;
+		}
+
+		/**
+		 * makes sure the blocks covering the given range are cached, adjacent
+		 * missing blocks are fetched together
+		 */
+		synchronized void fetch(long pos, int count) throws IOException {
+			long first = pos / blockSize;
+			long last = (pos + count - 1) / blockSize;
+			long index = first;
+			while (index <= last) {
+				if (isCached(index)) {
+					index++;
+					continue;
+				}
+				int run = 1;
+				while (index + run <= last && run < MAX_COALESCED_BLOCKS
+						&& !isCached(index + run)) {
+					run++;
+				}
+				fetchBlocks(index, run);
+				index += run;
+			}
+		}
+
+		private boolean isCached(long index) {
+			return blocks.containsKey(index)
+					|| (disk != null && onDisk.get((int) index));
+		}
+
+		/**
+		 * fetches <tt>count</tt> blocks starting with the given one from the
+		 * source with one range request
+		 */
+		private void fetchBlocks(long index, int count) throws IOException {
+			long start = index * blockSize;
+			int size = (int) Math.min((long) count * blockSize, length - start);
+			byte[] data = new byte[size];
+			int read = 0;
+			while (read < size) {
+				int n = source.read(start + read, data, read, size - read);
+				if (n < 0) {
+					throw new EOFException();
+				}
+				read += n;
+			}
+			for (int i = 0; i < count; i++) {
+				int offset = i * blockSize;
+				byte[] block = new byte[Math.min(blockSize, size - offset)];
+				System.arraycopy(data, offset, block, 0, block.length);
+				blocks.put(index + i, block);
+				writeToDisk(index + i, block);
+			}
+		}
+
+		private byte[] readFromDisk(long index) throws IOException {
+			if (disk == null || !onDisk.get((int) index)) {
+				return null;
+			}
+			long start = index * blockSize;
+			byte[] block = new byte[(int) Math.min(blockSize, length - start)];
+			disk.seek(start);
+			disk.readFully(block);
+			return block;
+		}
+
+		private void writeToDisk(long index, byte[] block) throws IOException {
+			if (disk == null) {
+				return;
+			}
+			disk.seek(index * blockSize);
+			disk.write(block);
+			onDisk.set((int) index);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.github.junrar.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Block buffered implementation of the <code>IReadOnlyAccess</code>
+ * interface. Reads are served from an internal block which is refilled from
+ * the underlying source whenever the position leaves it, so the many small
+ * reads issued while scanning headers do not each end up in a system call.
+ * Seeking inside the current block keeps it, seeking outside of it
+ * invalidates it.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public abstract class BufferedReadOnlyAccess implements IReadOnlyAccess {
+
+	/**
+	 * the default size of a buffered block
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 0x4000;
+
+	private final byte[] buffer;
+
+	/** position in the source of the first byte in the buffer */
+	private long bufferStart;
+
+	/** number of valid bytes in the buffer */
+	private int bufferLength;
+
+	private long position;
+
+	/**
+	 * @param blockSize
+	 *            the size of the buffered block
+	 */
+	protected BufferedReadOnlyAccess(int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be positive: "
+					+ blockSize);
+		}
+		this.buffer = new byte[blockSize];
+	}
+
+	/**
+	 * Read up to <tt>count</tt> bytes from the underlying source starting at
+	 * the given position.
+	 *
+	 * @return the number of bytes read or -1 at the end of the source
+	 */
+	protected abstract int readBlock(long pos, byte[] buffer, int off,
+			int count) throws IOException;
+
+	/**
+	 * Read up to <tt>dst.remaining()</tt> bytes from the underlying source
+	 * starting at the given position. The default implementation goes through
+	 * {@link #readBlock(long, byte[], int, int)}, subclasses which can fill a
+	 * <code>ByteBuffer</code> directly should override it.
+	 *
+	 * @return the number of bytes read or -1 at the end of the source
+	 */
+	protected int readBlock(long pos, ByteBuffer dst) throws IOException {
+		if (dst.hasArray()) {
+			int read = readBlock(pos, dst.array(), dst.arrayOffset()
+					+ dst.position(), dst.remaining());
+			if (read > 0) {
+				dst.position(dst.position() + read);
+			}
+			return read;
+		}
+		byte[] tmp = new byte[Math.min(dst.remaining(), buffer.length)];
+		int read = readBlock(pos, tmp, 0, tmp.length);
+		if (read > 0) {
+			dst.put(tmp, 0, read);
+		}
+		return read;
+	}
+
+	public long getPosition() throws IOException {
+		return position;
+	}
+
+	public void setPosition(long pos) throws IOException {
+		if (pos < 0) {
+			throw new EOFException();
+		}
+		position = pos;
+	}
+
+	public int read() throws IOException {
+		if (!isBuffered(position) && !fillBuffer()) {
+			return -1;
+		}
+		return buffer[(int) (position++ - bufferStart)] & 0xff;
+	}
+
+	public int read(byte[] b, int off, int count) throws IOException {
+		if (count == 0) {
+			return 0;
+		}
+		if (!isBuffered(position)) {
+			if (count >= buffer.length) {
+				// large reads bypass the buffer
+				int read = readBlock(position, b, off, count);
+				if (read > 0) {
+					position += read;
+				}
+				return read;
+			}
+			if (!fillBuffer()) {
+				return -1;
+			}
+		}
+		int offset = (int) (position - bufferStart);
+		int read = Math.min(count, bufferLength - offset);
+		System.arraycopy(buffer, offset, b, off, read);
+		position += read;
+		return read;
+	}
+
+	public int readFully(byte[] b, int count) throws IOException {
+		int read = 0;
+		while (read < count) {
+			int n = read(b, read, count - read);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			read += n;
+		}
+		return count;
+	}
+
+	public int read(ByteBuffer dst, long pos) throws IOException {
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		if (isBuffered(pos)) {
+			int offset = (int) (pos - bufferStart);
+			int read = Math.min(dst.remaining(), bufferLength - offset);
+			dst.put(buffer, offset, read);
+			return read;
+		}
+		return readBlock(pos, dst);
+	}
+
+	/**
+	 * drops the buffered block, the next read goes to the source again
+	 */
+	protected void invalidateBuffer() {
+		bufferLength = 0;
+	}
+
+	private boolean isBuffered(long pos) {
+		return pos >= bufferStart && pos < bufferStart + bufferLength;
+	}
+
+	private boolean fillBuffer() throws IOException {
+		bufferStart = position;
+		bufferLength = 0;
+		int read = readBlock(position, buffer, 0, buffer.length);
+		if (read <= 0) {
+			return false;
+		}
+		bufferLength = read;
+		return true;
+	}
+}
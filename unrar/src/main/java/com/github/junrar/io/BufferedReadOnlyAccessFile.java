@@ -0,0 +1,65 @@
+package com.github.junrar.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Block buffered access to a local file.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class BufferedReadOnlyAccessFile extends BufferedReadOnlyAccess
+		implements IFileChannelAccess {
+
+	private final RandomAccessFile file;
+
+	/**
+	 * @param file
+	 *            the file
+	 * @throws FileNotFoundException
+	 */
+	public BufferedReadOnlyAccessFile(File file) throws FileNotFoundException {
+		this(file, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param file
+	 *            the file
+	 * @param blockSize
+	 *            the size of the buffered block
+	 * @throws FileNotFoundException
+	 */
+	public BufferedReadOnlyAccessFile(File file, int blockSize)
+			throws FileNotFoundException {
+		super(blockSize);
+		this.file = new RandomAccessFile(file, "r");
+	}
+
+	@Override
+	protected int readBlock(long pos, byte[] buffer, int off, int count)
+			throws IOException {
+		if (file.getFilePointer() != pos) {
+			file.seek(pos);
+		}
+		return file.read(buffer, off, count);
+	}
+
+	@Override
+	protected int readBlock(long pos, ByteBuffer dst) throws IOException {
+		return file.getChannel().read(dst, pos);
+	}
+
+	public FileChannel getFileChannel() throws IOException {
+		return file.getChannel();
+	}
+
+	public void close() throws IOException {
+		invalidateBuffer();
+		file.close();
+	}
+}
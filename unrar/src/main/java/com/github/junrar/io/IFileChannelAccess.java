@@ -0,0 +1,21 @@
+package com.github.junrar.io;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * An <code>IReadOnlyAccess</code> backed by a local file which exposes its
+ * <code>FileChannel</code>, so the data of stored entries can be mapped or
+ * transferred without copying it through the java heap.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public interface IFileChannelAccess extends IReadOnlyAccess {
+
+	/**
+	 * @return the channel of the underlying file, it must only be used for
+	 *         positional operations and is closed with this access
+	 */
+	public FileChannel getFileChannel() throws IOException;
+}
@@ -0,0 +1,30 @@
+package com.github.junrar.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Random access to a byte range addressable source, for example an object
+ * in a remote store read with http range requests. Every call may be
+ * expensive, callers should read large ranges, see
+ * {@link BlockCachedReadOnlyAccess}.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public interface IRangeSource extends Closeable {
+
+	/**
+	 * @return the length of the source in bytes
+	 */
+	public long getLength() throws IOException;
+
+	/**
+	 * Read up to <tt>count</tt> bytes starting at the given position. Must be
+	 * safe to call from several threads.
+	 *
+	 * @return the number of bytes read or -1 at the end of the source
+	 */
+	public int read(long position, byte[] buffer, int off, int count)
+			throws IOException;
+}
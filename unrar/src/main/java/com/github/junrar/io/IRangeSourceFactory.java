@@ -0,0 +1,20 @@
+package com.github.junrar.io;
+
+import java.io.IOException;
+
+/**
+ * Opens the {@link IRangeSource} of a volume by its name, for example the key
+ * of an object in a remote store.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public interface IRangeSourceFactory {
+
+	/**
+	 * @param name
+	 *            the name of the volume
+	 * @return the source or null if there is no volume with that name
+	 */
+	public IRangeSource open(String name) throws IOException;
+}
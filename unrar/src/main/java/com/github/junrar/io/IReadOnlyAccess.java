@@ -18,6 +18,7 @@
 package com.github.junrar.io;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 
 /**
@@ -56,6 +57,17 @@ public interface IReadOnlyAccess {
 	 */
 	public int readFully(byte[] buffer, int count) throws IOException;
 
+	/**
+	 * Read up to <tt>dst.remaining()</tt> bytes starting at the given
+	 * position of the file into the buffer. The buffer may be a heap or a
+	 * direct buffer, the current position of the file is not changed.
+	 *
+	 * @param dst where to store the read data
+	 * @param position the position in the file to read from
+	 * @return bytes read || -1 at the end of the file
+	 */
+	public int read(ByteBuffer dst, long position) throws IOException;
+
     /** Close this file. */
     public void close() throws IOException;
 }
@@ -1,8 +1,9 @@
 package com.github.junrar.io;
 
-import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 
 
@@ -14,7 +15,7 @@ import java.io.InputStream;
  * @author martinr
  */
 public class InputStreamReadOnlyAccessFile implements IReadOnlyAccess {
-	private RandomAccessStream is;
+	private SpillingRandomAccessStream is;
 
 	/**
 	 * Create new instance.
@@ -22,7 +23,22 @@ public class InputStreamReadOnlyAccessFile implements IReadOnlyAccess {
 	 * @param is The input stream to wrap.
 	 */
 	public InputStreamReadOnlyAccessFile(final InputStream is) {
-		this.is = new RandomAccessStream(new BufferedInputStream(is));
+		this.is = new SpillingRandomAccessStream(is);
+	}
+
+	/**
+	 * Create new instance which keeps at most <tt>memoryLimit</tt> bytes of
+	 * the stream on the heap and spills the rest to a temporary file.
+	 * 
+	 * @param is The input stream to wrap.
+	 * @param memoryLimit The number of bytes to keep on the heap.
+	 * @param tempDirectory Where to create the spill file, <code>null</code>
+	 *            for the default temporary directory.
+	 */
+	public InputStreamReadOnlyAccessFile(final InputStream is,
+			long memoryLimit, File tempDirectory) {
+		this.is = new SpillingRandomAccessStream(is, memoryLimit,
+				tempDirectory);
 	}
 	
 	@Override
@@ -51,6 +67,27 @@ public class InputStreamReadOnlyAccessFile implements IReadOnlyAccess {
 		return count;
 	}
 
+	@Override
+	public int read(ByteBuffer dst, long position) throws IOException {
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		if (dst.hasArray()) {
+			int read = is.read(position, dst.array(), dst.arrayOffset()
+					+ dst.position(), dst.remaining());
+			if (read > 0) {
+				dst.position(dst.position() + read);
+			}
+			return read;
+		}
+		byte[] tmp = new byte[dst.remaining()];
+		int read = is.read(position, tmp, 0, tmp.length);
+		if (read > 0) {
+			dst.put(tmp, 0, read);
+		}
+		return read;
+	}
+
 	@Override
 	public void close() throws IOException {
 		is.close();
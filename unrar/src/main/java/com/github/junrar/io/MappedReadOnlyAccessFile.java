@@ -0,0 +1,157 @@
+package com.github.junrar.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory mapped access to a local file. The file is mapped lazily in
+ * segments of at most <tt>segmentSize</tt> bytes, so files larger than 2 GB
+ * can be read as well. Reads are served from the page cache without a system
+ * call.
+ *
+ * Note that the mapped segments are released by the garbage collector, not by
+ * {@link #close()}.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class MappedReadOnlyAccessFile implements IFileChannelAccess {
+
+	/**
+	 * the default size of a mapped segment (1 GB)
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 0x40000000;
+
+	private final RandomAccessFile file;
+
+	private final FileChannel channel;
+
+	private final long length;
+
+	private final int segmentSize;
+
+	private MappedByteBuffer[] segments;
+
+	private long position;
+
+	/**
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 */
+	public MappedReadOnlyAccessFile(File file) throws IOException {
+		this(file, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param file
+	 *            the file
+	 * @param segmentSize
+	 *            the maximum size of a single mapping
+	 * @throws IOException
+	 */
+	public MappedReadOnlyAccessFile(File file, int segmentSize)
+			throws IOException {
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException(
+					"segmentSize must be positive: " + segmentSize);
+		}
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		this.length = channel.size();
+		this.segmentSize = segmentSize;
+		this.segments = new MappedByteBuffer[(int) ((length + segmentSize - 1) / segmentSize)];
+	}
+
+	public long getPosition() throws IOException {
+		return position;
+	}
+
+	public void setPosition(long pos) throws IOException {
+		if (pos < 0) {
+			throw new EOFException();
+		}
+		position = pos;
+	}
+
+	public int read() throws IOException {
+		if (position >= length) {
+			return -1;
+		}
+		MappedByteBuffer segment = getSegment((int) (position / segmentSize));
+		int b = segment.get((int) (position % segmentSize)) & 0xff;
+		position++;
+		return b;
+	}
+
+	public int read(byte[] buffer, int off, int count) throws IOException {
+		if (count == 0) {
+			return 0;
+		}
+		if (position >= length) {
+			return -1;
+		}
+		MappedByteBuffer segment = getSegment((int) (position / segmentSize));
+		int offset = (int) (position % segmentSize);
+		int read = Math.min(count, segment.limit() - offset);
+		ByteBuffer view = segment.duplicate();
+		view.position(offset);
+		view.get(buffer, off, read);
+		position += read;
+		return read;
+	}
+
+	public int readFully(byte[] buffer, int count) throws IOException {
+		int read = 0;
+		while (read < count) {
+			int n = read(buffer, read, count - read);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			read += n;
+		}
+		return count;
+	}
+
+	public int read(ByteBuffer dst, long pos) throws IOException {
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		if (pos >= length) {
+			return -1;
+		}
+		MappedByteBuffer segment = getSegment((int) (pos / segmentSize));
+		int offset = (int) (pos % segmentSize);
+		int read = Math.min(dst.remaining(), segment.limit() - offset);
+		ByteBuffer view = segment.duplicate();
+		view.limit(offset + read);
+		view.position(offset);
+		dst.put(view);
+		return read;
+	}
+
+	public FileChannel getFileChannel() throws IOException {
+		return channel;
+	}
+
+	public void close() throws IOException {
+		segments = null;
+		file.close();
+	}
+
+	private MappedByteBuffer getSegment(int index) throws IOException {
+		MappedByteBuffer segment = segments[index];
+		if (segment == null) {
+			long start = (long) index * segmentSize;
+			segment = channel.map(FileChannel.MapMode.READ_ONLY, start,
+					Math.min(segmentSize, length - start));
+			segments[index] = segment;
+		}
+		return segment;
+	}
+}
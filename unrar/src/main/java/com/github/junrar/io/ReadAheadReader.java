@@ -0,0 +1,188 @@
+package com.github.junrar.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a region of an <code>IReadOnlyAccess</code> ahead of its consumer. A
+ * background thread fills a ring of buffers with positional reads while the
+ * consumer takes the data of the buffers filled before, so waiting for the
+ * disk or the network overlaps with decoding.
+ *
+ * The file must not be read by anyone else while the reader is active. The
+ * reading thread is never interrupted, as that would close a
+ * <code>FileChannel</code> under the file. It waits for free buffers until
+ * {@link #close()}, which the archive calls when the extraction stops, the
+ * file is complete or the archive is closed.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class ReadAheadReader {
+
+	/** marks the end of the region in the filled queue */
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	private final IReadOnlyAccess file;
+
+	private final long end;
+
+	private final BlockingQueue<ByteBuffer> free;
+
+	private final BlockingQueue<ByteBuffer> filled;
+
+	private final Thread thread;
+
+	/** the buffer the consumer reads from */
+	private ByteBuffer current;
+
+	/** set by the reading thread if a read failed */
+	private volatile IOException failure;
+
+	private volatile boolean closed;
+
+	private boolean finished;
+
+	/**
+	 * Starts reading the region.
+	 *
+	 * @param file
+	 *            the file to read
+	 * @param start
+	 *            the position of the first byte of the region
+	 * @param length
+	 *            the length of the region
+	 * @param bufferCount
+	 *            the number of buffers in the ring
+	 * @param bufferSize
+	 *            the size of a single buffer
+	 */
+	public ReadAheadReader(IReadOnlyAccess file, long start, long length,
+			int bufferCount, int bufferSize) {
+		if (bufferCount <= 0 || bufferSize <= 0) {
+			throw new IllegalArgumentException("invalid ring of "
+					+ bufferCount + " buffers of " + bufferSize + " bytes");
+		}
+		this.file = file;
+		this.end = start + length;
+		// one more slot than buffers so END and the poison always fit
+		free = new ArrayBlockingQueue<ByteBuffer>(bufferCount + 1);
+		filled = new ArrayBlockingQueue<ByteBuffer>(bufferCount + 1);
+		for (int i = 0; i < bufferCount; i++) {
+			free.add(ByteBuffer.allocate(bufferSize));
+		}
+		final long from = start;
+		thread = new Thread(new Runnable() {
+			public void run() {
+				fill(from);
+			}
+		}, "junrar read-ahead");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Copies the next bytes of the region into the buffer, waiting for the
+	 * reading thread if nothing has been read yet.
+	 *
+	 * @return the number of bytes copied or -1 at the end of the region
+	 * @throws IOException
+	 *             if the reading thread failed
+	 */
+	public int read(ByteBuffer dst) throws IOException {
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		while (current == null || !current.hasRemaining()) {
+			if (finished) {
+				return -1;
+			}
+			if (current != null) {
+				current.clear();
+				free.add(current);
+				current = null;
+			}
+			ByteBuffer next;
+			try {
+				next = filled.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			if (next == END) {
+				finished = true;
+				if (failure != null) {
+					throw failure;
+				}
+				return -1;
+			}
+			current = next;
+		}
+		int read = Math.min(dst.remaining(), current.remaining());
+		if (read == current.remaining()) {
+			dst.put(current);
+		} else {
+			int limit = current.limit();
+			current.limit(current.position() + read);
+			dst.put(current);
+			current.limit(limit);
+		}
+		return read;
+	}
+
+	/**
+	 * Stops the reading thread and waits until it has finished its current
+	 * read.
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		// wakes the reading thread if it waits for a free buffer
+		free.offer(END);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			filled.clear();
+			current = null;
+			finished = true;
+		}
+	}
+
+	private void fill(long position) {
+		try {
+			while (!closed && position < end) {
+				ByteBuffer buffer = free.take();
+				if (closed || buffer == END) {
+					break;
+				}
+				if (buffer.remaining() > end - position) {
+					buffer.limit((int) (end - position));
+				}
+				while (buffer.hasRemaining()) {
+					int read = file.read(buffer, position);
+					if (read < 0) {
+						throw new EOFException();
+					}
+					position += read;
+				}
+				buffer.flip();
+				filled.put(buffer);
+			}
+		} catch (IOException e) {
+			failure = e;
+		} catch (InterruptedException e) {
+			failure = new InterruptedIOException();
+		} finally {
+			filled.offer(END);
+		}
+	}
+}
@@ -19,6 +19,7 @@ package com.github.junrar.io;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * A File like access to a byte array.
@@ -85,6 +86,18 @@ public class ReadOnlyAccessByteArray implements IReadOnlyAccess{
 		return read;
 	}
 
+    public int read(ByteBuffer dst, long position) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        if (position >= file.length) {
+            return -1;
+        }
+        int read = (int) Math.min(dst.remaining(), file.length - position);
+        dst.put(file, (int) position, read);
+        return read;
+    }
+
     public void close() throws IOException {
     }
 }
@@ -0,0 +1,149 @@
+package com.github.junrar.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A File like access to one or more ByteBuffers, heap or direct, which are
+ * read as if they were concatenated. With several buffers data beyond 2 GB
+ * can be addressed.
+ *
+ * Only the bytes between position and limit of each buffer at construction
+ * time are used, the buffers themselves are not modified.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class ReadOnlyAccessByteBuffer implements IReadOnlyAccess {
+
+	private ByteBuffer[] segments;
+
+	/** position of the first byte of each segment */
+	private final long[] starts;
+
+	private final long length;
+
+	private long position;
+
+	/** index of the segment the position was last found in */
+	private int current;
+
+	/**
+	 * @param buffers
+	 *            the data of the file, in order
+	 */
+	public ReadOnlyAccessByteBuffer(ByteBuffer... buffers) {
+		if (buffers == null) {
+			throw new NullPointerException("buffers must not be null");
+		}
+		segments = new ByteBuffer[buffers.length];
+		starts = new long[buffers.length];
+		long start = 0;
+		for (int i = 0; i < buffers.length; i++) {
+			segments[i] = buffers[i].slice();
+			starts[i] = start;
+			start += segments[i].limit();
+		}
+		length = start;
+	}
+
+	/**
+	 * @return the total number of bytes
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	public long getPosition() throws IOException {
+		return position;
+	}
+
+	public void setPosition(long pos) throws IOException {
+		if (pos < 0) {
+			throw new EOFException();
+		}
+		position = pos;
+	}
+
+	public int read() throws IOException {
+		if (position >= length) {
+			return -1;
+		}
+		int index = segmentOf(position);
+		int b = segments[index].get((int) (position - starts[index])) & 0xff;
+		position++;
+		return b;
+	}
+
+	public int read(byte[] buffer, int off, int count) throws IOException {
+		if (count == 0) {
+			return 0;
+		}
+		if (position >= length) {
+			return -1;
+		}
+		ByteBuffer segment = segments[segmentOf(position)];
+		int offset = (int) (position - starts[current]);
+		int read = Math.min(count, segment.limit() - offset);
+		segment.position(offset);
+		segment.get(buffer, off, read);
+		position += read;
+		return read;
+	}
+
+	public int readFully(byte[] buffer, int count) throws IOException {
+		int read = 0;
+		while (read < count) {
+			int n = read(buffer, read, count - read);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			read += n;
+		}
+		return count;
+	}
+
+	public int read(ByteBuffer dst, long pos) throws IOException {
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		if (pos >= length) {
+			return -1;
+		}
+		int index = segmentOf(pos);
+		int offset = (int) (pos - starts[index]);
+		ByteBuffer src = segments[index].duplicate();
+		int read = Math.min(dst.remaining(), src.limit() - offset);
+		src.limit(offset + read);
+		src.position(offset);
+		dst.put(src);
+		return read;
+	}
+
+	public void close() throws IOException {
+		segments = new ByteBuffer[0];
+	}
+
+	/**
+	 * @return the index of the segment holding the given position, which
+	 *         must be less than the length
+	 */
+	private int segmentOf(long pos) {
+		ByteBuffer segment = segments[current];
+		if (pos >= starts[current] && pos < starts[current] + segment.limit()) {
+			return current;
+		}
+		int index = Arrays.binarySearch(starts, pos);
+		if (index < 0) {
+			index = -index - 2;
+		}
+		// skip empty segments starting at the same position
+		while (pos >= starts[index] + segments[index].limit()) {
+			index++;
+		}
+		current = index;
+		return index;
+	}
+}
@@ -21,6 +21,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * DOCUMENT ME
@@ -29,7 +31,7 @@ import java.io.RandomAccessFile;
  * @version $LastChangedRevision$
  */
 public class ReadOnlyAccessFile extends RandomAccessFile
-        implements IReadOnlyAccess{
+        implements IFileChannelAccess{
 
 	/**
 	 * @param file the file
@@ -52,4 +54,12 @@ public class ReadOnlyAccessFile extends RandomAccessFile
 	public void setPosition(long pos) throws IOException {
         this.seek(pos);
 	}
+
+	public int read(ByteBuffer dst, long position) throws IOException {
+        return this.getChannel().read(dst, position);
+	}
+
+	public FileChannel getFileChannel() throws IOException {
+        return this.getChannel();
+	}
 }
@@ -0,0 +1,85 @@
+package com.github.junrar.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * A cursor over a {@link SharedFileChannel}. The cursor keeps its own
+ * position and block buffer and reads through positional reads on the shared
+ * channel, so any number of cursors on one file can be used by different
+ * threads without opening the file again. A single cursor is not thread safe.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class ReadOnlyAccessFileChannel extends BufferedReadOnlyAccess
+		implements IFileChannelAccess {
+
+	private final SharedFileChannel channel;
+
+	/** true if this cursor holds a reference on the channel */
+	private boolean owner;
+
+	/**
+	 * Opens the file on a channel of its own.
+	 *
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 */
+	public ReadOnlyAccessFileChannel(File file) throws IOException {
+		this(new SharedFileChannel(file));
+	}
+
+	/**
+	 * Creates a cursor holding a reference on the given channel, the channel
+	 * is released when the cursor is closed.
+	 *
+	 * @param channel
+	 *            the shared channel
+	 * @throws ClosedChannelException
+	 *             if the channel has already been closed
+	 */
+	public ReadOnlyAccessFileChannel(SharedFileChannel channel)
+			throws ClosedChannelException {
+		super(DEFAULT_BLOCK_SIZE);
+		this.channel = channel;
+		if (!channel.retain()) {
+			throw new ClosedChannelException();
+		}
+		owner = true;
+	}
+
+	/**
+	 * @return the shared channel this cursor reads from
+	 */
+	public SharedFileChannel getChannel() {
+		return channel;
+	}
+
+	public FileChannel getFileChannel() throws IOException {
+		return channel.getFileChannel();
+	}
+
+	@Override
+	protected int readBlock(long pos, byte[] buffer, int off, int count)
+			throws IOException {
+		return channel.read(ByteBuffer.wrap(buffer, off, count), pos);
+	}
+
+	@Override
+	protected int readBlock(long pos, ByteBuffer dst) throws IOException {
+		return channel.read(dst, pos);
+	}
+
+	public void close() throws IOException {
+		invalidateBuffer();
+		if (owner) {
+			owner = false;
+			channel.release();
+		}
+	}
+}
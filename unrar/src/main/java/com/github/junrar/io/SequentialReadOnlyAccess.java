@@ -0,0 +1,116 @@
+package com.github.junrar.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Forward only access to an InputStream. Nothing is cached, seeking forward
+ * skips the bytes in between and seeking backwards fails, so an archive can be
+ * read from a stream in constant memory as long as it is read in order.
+ *
+ * Unlike other implementations a positional read moves the position of this
+ * access to the end of the bytes read, as the skipped and read bytes cannot be
+ * read again.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class SequentialReadOnlyAccess implements IReadOnlyAccess {
+
+	private final InputStream is;
+
+	private long position;
+
+	/**
+	 * @param is
+	 *            the stream to read
+	 */
+	public SequentialReadOnlyAccess(InputStream is) {
+		this.is = is;
+	}
+
+	public long getPosition() throws IOException {
+		return position;
+	}
+
+	public void setPosition(long pos) throws IOException {
+		if (pos < position) {
+			throw new IOException("cannot seek backwards from " + position
+					+ " to " + pos);
+		}
+		while (position < pos) {
+			long skipped = is.skip(pos - position);
+			if (skipped <= 0) {
+				// skip may return 0 before the end of the stream
+				if (is.read() < 0) {
+					throw new EOFException();
+				}
+				skipped = 1;
+			}
+			position += skipped;
+		}
+	}
+
+	public int read() throws IOException {
+		int b = is.read();
+		if (b >= 0) {
+			position++;
+		}
+		return b;
+	}
+
+	public int read(byte[] buffer, int off, int count) throws IOException {
+		int read = is.read(buffer, off, count);
+		if (read > 0) {
+			position += read;
+		}
+		return read;
+	}
+
+	/**
+	 * @return 0 if the stream ends before the first byte
+	 * @throws EOFException
+	 *             if the stream ends after some bytes have been read
+	 */
+	public int readFully(byte[] buffer, int count) throws IOException {
+		int read = 0;
+		while (read < count) {
+			int n = read(buffer, read, count - read);
+			if (n < 0) {
+				if (read == 0) {
+					return 0;
+				}
+				throw new EOFException();
+			}
+			read += n;
+		}
+		return count;
+	}
+
+	public int read(ByteBuffer dst, long pos) throws IOException {
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		setPosition(pos);
+		if (dst.hasArray()) {
+			int read = read(dst.array(), dst.arrayOffset() + dst.position(),
+					dst.remaining());
+			if (read > 0) {
+				dst.position(dst.position() + read);
+			}
+			return read;
+		}
+		byte[] tmp = new byte[dst.remaining()];
+		int read = read(tmp, 0, tmp.length);
+		if (read > 0) {
+			dst.put(tmp, 0, read);
+		}
+		return read;
+	}
+
+	public void close() throws IOException {
+		is.close();
+	}
+}
@@ -0,0 +1,101 @@
+package com.github.junrar.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read only file descriptor shared by several
+ * {@link ReadOnlyAccessFileChannel} cursors. All reads are positional
+ * (<code>pread</code>), so the channel has no position of its own and may be
+ * used by several threads at once. The file is closed when the last cursor
+ * holding a reference releases it.
+ *
+ * Note that interrupting a thread while it reads closes the channel for all
+ * of its cursors, as with any <code>FileChannel</code>.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class SharedFileChannel {
+
+	private final RandomAccessFile file;
+
+	private final FileChannel channel;
+
+	private int references;
+
+	private boolean closed;
+
+	/**
+	 * Opens the file. The channel holds no reference yet, the first cursor
+	 * created on it retains one.
+	 *
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 */
+	public SharedFileChannel(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+	}
+
+	/**
+	 * Read up to <tt>dst.remaining()</tt> bytes starting at the given position
+	 * of the file. This does not change any shared state and may be called
+	 * concurrently.
+	 *
+	 * @return the number of bytes read or -1 at the end of the file
+	 */
+	public int read(ByteBuffer dst, long position) throws IOException {
+		return channel.read(dst, position);
+	}
+
+	/**
+	 * @return the channel of the file, it must only be used for positional
+	 *         operations
+	 */
+	public FileChannel getFileChannel() {
+		return channel;
+	}
+
+	/**
+	 * @return the size of the file
+	 */
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	/**
+	 * @return false if the channel has already been closed
+	 */
+	public synchronized boolean retain() {
+		if (closed) {
+			return false;
+		}
+		references++;
+		return true;
+	}
+
+	/**
+	 * drops one reference, the file is closed when none is left
+	 */
+	public synchronized void release() throws IOException {
+		if (closed) {
+			return;
+		}
+		if (--references <= 0) {
+			closed = true;
+			file.close();
+		}
+	}
+
+	/**
+	 * @return true if the file has been closed
+	 */
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+}
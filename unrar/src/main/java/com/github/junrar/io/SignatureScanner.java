@@ -0,0 +1,133 @@
+package com.github.junrar.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Finds the signature of a rar archive, the bytes of its mark header, in a
+ * file that starts with something else, like the module of a self extracting
+ * archive. The file is read in large blocks which are searched a long word at
+ * a time for the first byte of the signature.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class SignatureScanner {
+
+	/** the mark header of an archive of version 1.5 to 4.x */
+	private static final byte[] SIGNATURE = { 0x52, 0x61, 0x72, 0x21, 0x1a,
+			0x07, 0x00 };
+
+	private static final int BLOCK_SIZE = 0x10000;
+
+	private static final long ONES = 0x0101010101010101L;
+
+	private static final long HIGHS = 0x8080808080808080L;
+
+	/** the first byte of the signature in every byte of a long */
+	private static final long FIRSTS = (SIGNATURE[0] & 0xffL) * ONES;
+
+	private SignatureScanner() {
+	}
+
+	/**
+	 * Searches the signature with positional reads, the position of the file
+	 * is not changed.
+	 *
+	 * @param file
+	 *            the file to search
+	 * @param from
+	 *            where to start
+	 * @param limit
+	 *            the position after the last byte to search
+	 * @return the position of the signature or -1 if it was not found
+	 */
+	public static long find(IReadOnlyAccess file, long from, long limit)
+			throws IOException {
+		// most archives start with the signature
+		byte[] probe = new byte[SIGNATURE.length];
+		if (limit - from < probe.length) {
+			return -1;
+		}
+		int probed = readFully(file, ByteBuffer.wrap(probe), from);
+		if (probed == probe.length && indexOf(probe, 0, probed) == 0) {
+			return from;
+		}
+		byte[] block = new byte[(int) Math.min(BLOCK_SIZE, limit - from)];
+		ByteBuffer words = ByteBuffer.wrap(block).order(
+				ByteOrder.LITTLE_ENDIAN);
+		long position = from;
+		while (true) {
+			int length = (int) Math.min(block.length, limit - position);
+			int read = readFully(file, ByteBuffer.wrap(block, 0, length),
+					position);
+			int index = indexOf(words, read);
+			if (index >= 0) {
+				return position + index;
+			}
+			if (read < length || position + read >= limit) {
+				return -1;
+			}
+			// the signature may start in the last bytes of the block
+			position += read - SIGNATURE.length + 1;
+		}
+	}
+
+	private static int readFully(IReadOnlyAccess file, ByteBuffer dst,
+			long position) throws IOException {
+		int start = dst.position();
+		while (dst.hasRemaining()) {
+			int read = file.read(dst, position + dst.position() - start);
+			if (read < 0) {
+				break;
+			}
+		}
+		return dst.position() - start;
+	}
+
+	/**
+	 * @return the offset of the signature in the bytes or -1
+	 */
+	public static int indexOf(byte[] bytes, int from, int to) {
+		for (int i = from; i + SIGNATURE.length <= to; i++) {
+			if (matches(bytes, i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * searches the first <tt>length</tt> bytes of the buffer eight bytes at a
+	 * time, only words holding the first byte of the signature are looked at
+	 * byte by byte
+	 */
+	private static int indexOf(ByteBuffer words, int length) {
+		byte[] bytes = words.array();
+		int end = length - SIGNATURE.length;
+		int i = 0;
+		for (; i + 8 <= length; i += 8) {
+			long x = words.getLong(i) ^ FIRSTS;
+			// has a zero byte where the first byte of the signature is
+			if (((x - ONES) & ~x & HIGHS) == 0) {
+				continue;
+			}
+			for (int j = i; j < i + 8 && j <= end; j++) {
+				if (matches(bytes, j)) {
+					return j;
+				}
+			}
+		}
+		return indexOf(bytes, i, length);
+	}
+
+	private static boolean matches(byte[] bytes, int offset) {
+		for (int k = 0; k < SIGNATURE.length; k++) {
+			if (bytes[offset + k] != SIGNATURE[k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,246 @@
+package com.github.junrar.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allows seeking within an InputStream, like {@link RandomAccessStream}, but
+ * with a bounded memory footprint. The bytes read from the stream are cached
+ * in large blocks on the heap up to <tt>memoryLimit</tt> bytes, everything
+ * after that is spilled to a temporary file which is deleted on
+ * {@link #close()}.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class SpillingRandomAccessStream extends InputStream {
+
+	/**
+	 * the default size of a cached block (64 KB)
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 0x10000;
+
+	/**
+	 * the default number of bytes kept on the heap (32 MB)
+	 */
+	public static final long DEFAULT_MEMORY_LIMIT = 0x2000000;
+
+	private final InputStream src;
+
+	private final int blockSize;
+
+	/** number of bytes kept in memory, a multiple of the block size */
+	private final long memoryCapacity;
+
+	private final File tempDirectory;
+
+	private final List<byte[]> blocks = new ArrayList<byte[]>();
+
+	private File spillFile;
+
+	private RandomAccessFile spill;
+
+	/** transfer buffer for the bytes that go to the spill file */
+	private byte[] spillBuffer;
+
+	private long pointer;
+
+	/** number of bytes read from the stream so far */
+	private long length;
+
+	private boolean foundEOS;
+
+	/**
+	 * @param src
+	 *            the stream to read
+	 */
+	public SpillingRandomAccessStream(InputStream src) {
+		this(src, DEFAULT_MEMORY_LIMIT, null);
+	}
+
+	/**
+	 * @param src
+	 *            the stream to read
+	 * @param memoryLimit
+	 *            the number of bytes to keep on the heap before spilling to
+	 *            disk
+	 * @param tempDirectory
+	 *            where to create the spill file, <code>null</code> for the
+	 *            default temporary directory
+	 */
+	public SpillingRandomAccessStream(InputStream src, long memoryLimit,
+			File tempDirectory) {
+		this(src, memoryLimit, tempDirectory, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param src
+	 *            the stream to read
+	 * @param memoryLimit
+	 *            the number of bytes to keep on the heap before spilling to
+	 *            disk
+	 * @param tempDirectory
+	 *            where to create the spill file, <code>null</code> for the
+	 *            default temporary directory
+	 * @param blockSize
+	 *            the size of a cached block
+	 */
+	public SpillingRandomAccessStream(InputStream src, long memoryLimit,
+			File tempDirectory, int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be positive: "
+					+ blockSize);
+		}
+		if (memoryLimit < 0) {
+			throw new IllegalArgumentException(
+					"memoryLimit must not be negative: " + memoryLimit);
+		}
+		this.src = src;
+		this.blockSize = blockSize;
+		this.memoryCapacity = memoryLimit / blockSize * blockSize;
+		this.tempDirectory = tempDirectory;
+	}
+
+	public long getLongFilePointer() {
+		return pointer;
+	}
+
+	public void seek(long loc) {
+		pointer = loc < 0L ? 0L : loc;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (readUntil(pointer + 1) <= pointer) {
+			return -1;
+		}
+		if (pointer < memoryCapacity) {
+			byte[] block = blocks.get((int) (pointer / blockSize));
+			return block[(int) (pointer++ % blockSize)] & 0xff;
+		}
+		spill.seek(pointer - memoryCapacity);
+		int b = spill.read();
+		pointer++;
+		return b;
+	}
+
+	@Override
+	public int read(byte[] bytes, int off, int len) throws IOException {
+		int read = read(pointer, bytes, off, len);
+		if (read > 0) {
+			pointer += read;
+		}
+		return read;
+	}
+
+	/**
+	 * Reads up to <tt>len</tt> bytes starting at the given position without
+	 * moving the file pointer.
+	 *
+	 * @return the number of bytes read or -1 at the end of the stream
+	 */
+	public int read(long pos, byte[] bytes, int off, int len)
+			throws IOException {
+		if (off < 0 || len < 0 || off + len > bytes.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		long available = readUntil(pos + len);
+		if (available <= pos) {
+			return -1;
+		}
+		len = (int) Math.min(len, available - pos);
+		if (pos < memoryCapacity) {
+			byte[] block = blocks.get((int) (pos / blockSize));
+			int offset = (int) (pos % blockSize);
+			int read = Math.min(len, blockSize - offset);
+			System.arraycopy(block, offset, bytes, off, read);
+			return read;
+		}
+		spill.seek(pos - memoryCapacity);
+		return spill.read(bytes, off, len);
+	}
+
+	public void readFully(byte[] bytes, int len) throws IOException {
+		int read = 0;
+		do {
+			int l = read(bytes, read, len - read);
+			if (l < 0) {
+				break;
+			}
+			read += l;
+		} while (read < len);
+	}
+
+	/**
+	 * reads the source until <tt>l</tt> bytes are cached or the end of the
+	 * stream is reached
+	 *
+	 * @return the number of cached bytes
+	 */
+	private long readUntil(long l) throws IOException {
+		while (length < l && !foundEOS) {
+			if (length < memoryCapacity) {
+				int offset = (int) (length % blockSize);
+				if (offset == 0) {
+					blocks.add(new byte[blockSize]);
+				}
+				byte[] block = blocks.get(blocks.size() - 1);
+				int n = src.read(block, offset, blockSize - offset);
+				if (n == -1) {
+					foundEOS = true;
+				} else {
+					length += n;
+				}
+			} else {
+				if (spill == null) {
+					openSpill();
+				}
+				int n = src.read(spillBuffer, 0, spillBuffer.length);
+				if (n == -1) {
+					foundEOS = true;
+				} else {
+					spill.seek(length - memoryCapacity);
+					spill.write(spillBuffer, 0, n);
+					length += n;
+				}
+			}
+		}
+		return length;
+	}
+
+	private void openSpill() throws IOException {
+		spillFile = File.createTempFile("junrar", ".tmp", tempDirectory);
+		try {
+			spill = new RandomAccessFile(spillFile, "rw");
+		} finally {
+			if (spill == null) {
+				spillFile.delete();
+			}
+		}
+		spillBuffer = new byte[blockSize];
+	}
+
+	@Override
+	public void close() throws IOException {
+		blocks.clear();
+		try {
+			src.close();
+		} finally {
+			if (spill != null) {
+				try {
+					spill.close();
+				} finally {
+					spill = null;
+					spillFile.delete();
+				}
+			}
+		}
+	}
+}
@@ -126,6 +126,13 @@ public class BaseBlock{
 		return (this.flags & EARC_VOLNUMBER)!=0;
 	}
 
+	/**
+	 * @return whether the end header announces a next volume
+	 */
+	public boolean hasNextVolume(){
+		return (this.flags & EARC_NEXT_VOLUME)!=0;
+	}
+
 	public boolean hasEncryptVersion(){
 		return (flags & MHD_ENCRYPTVER)!=0;
 	}
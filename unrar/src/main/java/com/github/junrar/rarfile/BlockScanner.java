@@ -0,0 +1,134 @@
+package com.github.junrar.rarfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.github.junrar.crc.RarCRC;
+import com.github.junrar.io.IReadOnlyAccess;
+import com.github.junrar.io.Raw;
+
+/**
+ * Checks and finds the blocks of a damaged volume. A block is taken to be
+ * valid if its type is known, its size is large enough for its type and the
+ * CRC of its header matches. The search reads the volume in large blocks and
+ * looks at the cheap type and size first, the CRC is only computed for the
+ * few positions which pass them.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class BlockScanner {
+
+	/** the size of the region searched with one read */
+	private static final int SEARCH_SIZE = 0x10000;
+
+	/** the largest possible header */
+	private static final int MAX_HEADER_SIZE = 0xffff;
+
+	private BlockScanner() {
+	}
+
+	/**
+	 * Reads the header at the given position with a positional read and
+	 * checks it, the position of the file is not changed.
+	 *
+	 * @param limit
+	 *            the length of the volume
+	 * @return whether there is a valid block at the position
+	 */
+	public static boolean isValidBlock(IReadOnlyAccess file, long position,
+			long limit) throws IOException {
+		byte[] base = new byte[BaseBlock.BaseBlockSize];
+		if (limit - position < base.length
+				|| readFully(file, base, base.length, position) < base.length) {
+			return false;
+		}
+		int size = getPlausibleSize(base, 0);
+		if (size < 0 || position + size > limit) {
+			return false;
+		}
+		byte[] header = new byte[size];
+		return readFully(file, header, size, position) == size
+				&& hasValidCrc(header, 0, size);
+	}
+
+	/**
+	 * Searches the next valid block with positional reads, the position of
+	 * the file is not changed.
+	 *
+	 * @param from
+	 *            the first position to look at
+	 * @param limit
+	 *            the length of the volume
+	 * @return the position of the block or -1 if there is none
+	 */
+	public static long find(IReadOnlyAccess file, long from, long limit)
+			throws IOException {
+		// a header starting in the searched region fits into the buffer
+		byte[] buffer = new byte[SEARCH_SIZE + MAX_HEADER_SIZE];
+		long position = from;
+		while (position + BaseBlock.BaseBlockSize <= limit) {
+			int available = readFully(file, buffer,
+					(int) Math.min(buffer.length, limit - position), position);
+			int end = Math.min(SEARCH_SIZE, available
+					- BaseBlock.BaseBlockSize + 1);
+			for (int i = 0; i < end; i++) {
+				int size = getPlausibleSize(buffer, i);
+				if (size >= 0 && i + size <= available
+						&& hasValidCrc(buffer, i, size)) {
+					return position + i;
+				}
+			}
+			if (end <= 0) {
+				break;
+			}
+			position += end;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the size of the header starting at the offset or -1 if its type
+	 *         or size is impossible
+	 */
+	private static int getPlausibleSize(byte[] bytes, int offset) {
+		byte type = bytes[offset + 2];
+		if (type < UnrarHeadertype.MainHeader.getHeaderByte()
+				|| type > UnrarHeadertype.EndArcHeader.getHeaderByte()) {
+			return -1;
+		}
+		short flags = Raw.readShortLittleEndian(bytes, offset + 3);
+		int size = Raw.readShortLittleEndian(bytes, offset + 5) & 0xffff;
+		int minimum = BaseBlock.BaseBlockSize;
+		if (type == UnrarHeadertype.MainHeader.getHeaderByte()) {
+			minimum += MainHeader.mainHeaderSize;
+		} else if (type == UnrarHeadertype.FileHeader.getHeaderByte()
+				|| type == UnrarHeadertype.NewSubHeader.getHeaderByte()) {
+			if ((flags & BaseBlock.LONG_BLOCK) == 0) {
+				return -1;
+			}
+			minimum = 32;
+		}
+		return size >= minimum ? size : -1;
+	}
+
+	/**
+	 * the CRC of a header covers all of it but the CRC itself, only its low
+	 * 16 bits are stored
+	 */
+	private static boolean hasValidCrc(byte[] bytes, int offset, int size) {
+		int crc = ~RarCRC.checkCrc(0xffffffff, bytes, offset + 2, size - 2);
+		return (short) crc == Raw.readShortLittleEndian(bytes, offset);
+	}
+
+	private static int readFully(IReadOnlyAccess file, byte[] buffer,
+			int count, long position) throws IOException {
+		ByteBuffer dst = ByteBuffer.wrap(buffer, 0, count);
+		while (dst.hasRemaining()) {
+			if (file.read(dst, position + dst.position()) < 0) {
+				break;
+			}
+		}
+		return dst.position();
+	}
+}
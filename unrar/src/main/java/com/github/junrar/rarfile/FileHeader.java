@@ -58,13 +58,17 @@ public class FileHeader extends BlockHeader {
 
     private String fileName;
     private String fileNameW;
+    private boolean namesDecoded;
 
     private byte[] subData;
 
-    private final byte[] salt = new byte[SALT_SIZE];
+    /** allocated only if the header has a salt */
+    private byte[] salt;
 
     private Date mTime;
 
+    private boolean mTimeDecoded;
+
     private Date cTime;
 
     private Date aTime;
@@ -137,28 +141,6 @@ public class FileHeader extends BlockHeader {
 	    position++;
 	}
 
-	if (isFileHeader()) {
-	    if (isUnicode()) {
-		int length = 0;
-		fileName = "";
-		fileNameW = "";
-		while (length < fileNameBytes.length
-			&& fileNameBytes[length] != 0) {
-		    length++;
-		}
-		final byte[] name = new byte[length];
-		System.arraycopy(fileNameBytes, 0, name, 0, name.length);
-		fileName = new String(name);
-		if (length != nameSize) {
-		    length++;
-		    fileNameW = FileNameDecoder.decode(fileNameBytes, length);
-		}
-	    } else {
-		fileName = new String(fileNameBytes);
-		fileNameW = "";
-	    }
-	}
-
 	if (UnrarHeadertype.NewSubHeader.equals(headerType)) {
 	    int datasize = headerSize - NEWLHD_SIZE - nameSize;
 	    if (hasSalt()) {
@@ -179,12 +161,13 @@ public class FileHeader extends BlockHeader {
 	}
 
 	if (hasSalt()) {
+	    salt = new byte[SALT_SIZE];
 	    for (int i = 0; i < SALT_SIZE; i++) {
 		salt[i] = fileHeader[position];
 		position++;
 	    }
 	}
-	mTime = getDateDos(fileTime);
+	// the names and the modification time are decoded on first use
 	// TODO rartime -> extended
 
     }
@@ -195,7 +178,7 @@ public class FileHeader extends BlockHeader {
 	final StringBuilder str = new StringBuilder();
 	str.append("unpSize: " + getUnpSize());
 	str.append("\nHostOS: " + hostOS.name());
-	str.append("\nMDate: " + mTime);
+	str.append("\nMDate: " + getMTime());
 	str.append("\nFileName: " + getFileNameString());
 	str.append("\nunpMethod: " + Integer.toHexString(getUnpMethod()));
 	str.append("\nunpVersion: " + Integer.toHexString(getUnpVersion()));
@@ -217,7 +200,62 @@ public class FileHeader extends BlockHeader {
 	logger.info(str.toString());
     }
 
-    private Date getDateDos(final int time) {
+    /**
+     * decodes the names of a file header, the unicode name is empty if there
+     * is none
+     */
+    private void decodeNames() {
+	namesDecoded = true;
+	if (!isFileHeader()) {
+	    return;
+	}
+	fileName = decodeName(fileNameBytes, 0, fileNameBytes.length,
+		isUnicode());
+	fileNameW = decodeNameW(fileNameBytes, 0, fileNameBytes.length,
+		isUnicode());
+    }
+
+    /**
+     * @return the name stored in the bytes of a file header, as it was read
+     *         by older versions
+     */
+    static String decodeName(final byte[] bytes, final int offset,
+	    final int size, final boolean unicode) {
+	if (!unicode) {
+	    return new String(bytes, offset, size);
+	}
+	int length = 0;
+	while (length < size && bytes[offset + length] != 0) {
+	    length++;
+	}
+	return new String(bytes, offset, length);
+    }
+
+    /**
+     * @return the unicode name stored in the bytes of a file header or an
+     *         empty string
+     */
+    static String decodeNameW(final byte[] bytes, final int offset,
+	    final int size, final boolean unicode) {
+	if (!unicode) {
+	    return "";
+	}
+	int length = 0;
+	while (length < size && bytes[offset + length] != 0) {
+	    length++;
+	}
+	if (length == size) {
+	    return "";
+	}
+	byte[] name = bytes;
+	if (offset != 0 || size != bytes.length) {
+	    name = new byte[size];
+	    System.arraycopy(bytes, offset, name, 0, size);
+	}
+	return FileNameDecoder.decode(name, length + 1);
+    }
+
+    static Date getDateDos(final int time) {
 	final Calendar cal = Calendar.getInstance();
 	cal.set(Calendar.YEAR, (time >>> 25) + 1980);
 	cal.set(Calendar.MONTH, ((time >>> 21) & 0x0f) - 1);
@@ -269,18 +307,30 @@ public class FileHeader extends BlockHeader {
     }
 
     public String getFileNameString() {
+	if (!namesDecoded) {
+	    decodeNames();
+	}
 	return fileName;
     }
 
     public void setFileName(final String fileName) {
+	if (!namesDecoded) {
+	    decodeNames();
+	}
 	this.fileName = fileName;
     }
 
     public String getFileNameW() {
+	if (!namesDecoded) {
+	    decodeNames();
+	}
 	return fileNameW;
     }
 
     public void setFileNameW(final String fileNameW) {
+	if (!namesDecoded) {
+	    decodeNames();
+	}
 	this.fileNameW = fileNameW;
     }
 
@@ -297,11 +347,23 @@ public class FileHeader extends BlockHeader {
     }
 
     public Date getMTime() {
+	if (!mTimeDecoded) {
+	    mTime = getDateDos(fileTime);
+	    mTimeDecoded = true;
+	}
 	return mTime;
     }
 
     public void setMTime(final Date time) {
 	mTime = time;
+	mTimeDecoded = true;
+    }
+
+    /**
+     * @return the modification time in MS-DOS format
+     */
+    public int getFileTime() {
+	return fileTime;
     }
 
     public short getNameSize() {
@@ -312,8 +374,11 @@ public class FileHeader extends BlockHeader {
 	return recoverySectors;
     }
 
+    /**
+     * @return the salt, all zeros if the header has none
+     */
     public byte[] getSalt() {
-	return salt;
+	return salt != null ? salt : new byte[SALT_SIZE];
     }
 
     public byte[] getSubData() {
@@ -414,4 +479,15 @@ public class FileHeader extends BlockHeader {
     public boolean isDirectory() {
 	return (flags & LHD_WINDOWMASK) == LHD_DIRECTORY;
     }
+
+    /**
+     * @return the dictionary size the file was packed with, 0 for a
+     *         directory
+     */
+    public int getDictionarySize() {
+	if (isDirectory()) {
+	    return 0;
+	}
+	return 0x10000 << ((flags & LHD_WINDOWMASK) >>> 5);
+    }
 }
@@ -0,0 +1,331 @@
+package com.github.junrar.rarfile;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The file headers of a volume kept in primitive arrays instead of one
+ * {@link FileHeader} per entry. Positions, sizes, CRCs, attributes, times and
+ * flags are stored column by column, the raw bytes of every header are packed
+ * into one shared array from which names are decoded on demand and
+ * {@link FileHeader} views are created when asked for.
+ *
+ * The entries must be added in the order of their position in the volume.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class FileHeaderCatalog {
+
+	/** the fixed part of a file header before the high sizes and the name */
+	private static final int FIXED_SIZE = BaseBlock.BaseBlockSize
+			+ BlockHeader.blockHeaderSize + 21;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int size;
+
+	private long[] positions = new long[INITIAL_CAPACITY];
+
+	private long[] packSizes = new long[INITIAL_CAPACITY];
+
+	private long[] unpackSizes = new long[INITIAL_CAPACITY];
+
+	private int[] crcs = new int[INITIAL_CAPACITY];
+
+	private int[] attributes = new int[INITIAL_CAPACITY];
+
+	private int[] times = new int[INITIAL_CAPACITY];
+
+	private short[] flags = new short[INITIAL_CAPACITY];
+
+	private byte[] methods = new byte[INITIAL_CAPACITY];
+
+	/** the start of the raw header of each entry in the pool */
+	private int[] offsets = new int[INITIAL_CAPACITY + 1];
+
+	private byte[] pool = new byte[INITIAL_CAPACITY * 64];
+
+	/**
+	 * open addressed table of entry index + 1 by the hash of the normalized
+	 * names, built on the first lookup by name
+	 */
+	private int[] nameTable;
+
+	/**
+	 * Adds a file header.
+	 *
+	 * @param fh
+	 *            the parsed header
+	 * @param baseBlock
+	 *            the bytes of the base block
+	 * @param blockHeader
+	 *            the bytes of the block header
+	 * @param fileHeader
+	 *            the remaining bytes the header was parsed from
+	 */
+	public void add(FileHeader fh, byte[] baseBlock, byte[] blockHeader,
+			byte[] fileHeader) {
+		if (size > 0 && fh.getPositionInFile() <= positions[size - 1]) {
+			throw new IllegalArgumentException("header at "
+					+ fh.getPositionInFile() + " is not after the last one");
+		}
+		if (size == positions.length) {
+			grow(size * 2);
+		}
+		int length = baseBlock.length + blockHeader.length + fileHeader.length;
+		int offset = offsets[size];
+		if (offset + length > pool.length) {
+			pool = Arrays.copyOf(pool, Math.max(pool.length * 2, offset
+					+ length));
+		}
+		System.arraycopy(baseBlock, 0, pool, offset, baseBlock.length);
+		offset += baseBlock.length;
+		System.arraycopy(blockHeader, 0, pool, offset, blockHeader.length);
+		offset += blockHeader.length;
+		System.arraycopy(fileHeader, 0, pool, offset, fileHeader.length);
+
+		positions[size] = fh.getPositionInFile();
+		packSizes[size] = fh.getFullPackSize();
+		unpackSizes[size] = fh.getFullUnpackSize();
+		crcs[size] = fh.getFileCRC();
+		attributes[size] = fh.getFileAttr();
+		times[size] = fh.getFileTime();
+		flags[size] = fh.getFlags();
+		methods[size] = fh.getUnpMethod();
+		offsets[size + 1] = offsets[size] + length;
+		size++;
+		nameTable = null;
+	}
+
+	private void grow(int capacity) {
+		positions = Arrays.copyOf(positions, capacity);
+		packSizes = Arrays.copyOf(packSizes, capacity);
+		unpackSizes = Arrays.copyOf(unpackSizes, capacity);
+		crcs = Arrays.copyOf(crcs, capacity);
+		attributes = Arrays.copyOf(attributes, capacity);
+		times = Arrays.copyOf(times, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+		methods = Arrays.copyOf(methods, capacity);
+		offsets = Arrays.copyOf(offsets, capacity + 1);
+	}
+
+	/**
+	 * removes all entries, the arrays are kept for reuse
+	 */
+	public void clear() {
+		size = 0;
+		nameTable = null;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	public long getPositionInFile(int index) {
+		checkIndex(index);
+		return positions[index];
+	}
+
+	public long getFullPackSize(int index) {
+		checkIndex(index);
+		return packSizes[index];
+	}
+
+	public long getFullUnpackSize(int index) {
+		checkIndex(index);
+		return unpackSizes[index];
+	}
+
+	public int getFileCRC(int index) {
+		checkIndex(index);
+		return crcs[index];
+	}
+
+	public int getFileAttr(int index) {
+		checkIndex(index);
+		return attributes[index];
+	}
+
+	/**
+	 * @return the modification time in MS-DOS format
+	 */
+	public int getFileTime(int index) {
+		checkIndex(index);
+		return times[index];
+	}
+
+	public Date getMTime(int index) {
+		return FileHeader.getDateDos(getFileTime(index));
+	}
+
+	public short getFlags(int index) {
+		checkIndex(index);
+		return flags[index];
+	}
+
+	public byte getUnpMethod(int index) {
+		checkIndex(index);
+		return methods[index];
+	}
+
+	public boolean isDirectory(int index) {
+		return (getFlags(index) & BaseBlock.LHD_WINDOWMASK)
+				== BaseBlock.LHD_DIRECTORY;
+	}
+
+	public String getFileNameString(int index) {
+		checkIndex(index);
+		return FileHeader.decodeName(pool, getNameOffset(index),
+				getNameSize(index), isUnicode(index));
+	}
+
+	public String getFileNameW(int index) {
+		checkIndex(index);
+		return FileHeader.decodeNameW(pool, getNameOffset(index),
+				getNameSize(index), isUnicode(index));
+	}
+
+	private boolean isUnicode(int index) {
+		return (flags[index] & BaseBlock.LHD_UNICODE) != 0;
+	}
+
+	private int getNameOffset(int index) {
+		int offset = offsets[index] + FIXED_SIZE;
+		if ((flags[index] & BaseBlock.LHD_LARGE) != 0) {
+			offset += 8;
+		}
+		return offset;
+	}
+
+	private int getNameSize(int index) {
+		int offset = offsets[index] + FIXED_SIZE - 6;
+		int nameSize = (pool[offset] & 0xff) | (pool[offset + 1] & 0xff) << 8;
+		nameSize = Math.min(nameSize, 4 * 1024);
+		return Math.min(nameSize, offsets[index + 1] - getNameOffset(index));
+	}
+
+	/**
+	 * Parses the header of an entry again, the header is not cached.
+	 *
+	 * @return a new header equal to the one the entry was added with
+	 */
+	public FileHeader getFileHeader(int index) {
+		checkIndex(index);
+		int offset = offsets[index];
+		byte[] base = Arrays.copyOfRange(pool, offset, offset
+				+ BaseBlock.BaseBlockSize);
+		offset += BaseBlock.BaseBlockSize;
+		byte[] block = Arrays.copyOfRange(pool, offset, offset
+				+ BlockHeader.blockHeaderSize);
+		offset += BlockHeader.blockHeaderSize;
+		byte[] rest = Arrays.copyOfRange(pool, offset, offsets[index + 1]);
+		BaseBlock bb = new BaseBlock(base);
+		bb.setPositionInFile(positions[index]);
+		return new FileHeader(new BlockHeader(bb, block), rest);
+	}
+
+	/**
+	 * @return the entry at the given position in the volume or -1
+	 */
+	public int indexOf(long position) {
+		int index = Arrays.binarySearch(positions, 0, size, position);
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * Looks up an entry by its name or its unicode name, as normalized by
+	 * {@link #normalizeName(String)}.
+	 *
+	 * @return the first entry with the name or -1
+	 */
+	public int indexOf(String name) {
+		if (size == 0) {
+			return -1;
+		}
+		if (nameTable == null) {
+			buildNameTable();
+		}
+		String key = normalizeName(name);
+		int mask = nameTable.length - 1;
+		for (int slot = key.hashCode() & mask;; slot = (slot + 1) & mask) {
+			int entry = nameTable[slot] - 1;
+			if (entry < 0) {
+				return -1;
+			}
+			if (key.equals(normalizeName(getFileNameString(entry)))
+					|| key.equals(normalizeName(getFileNameW(entry)))) {
+				return entry;
+			}
+		}
+	}
+
+	/**
+	 * puts every entry into the table once for each of its names, entries
+	 * are added in order so the first of equal names is found first
+	 */
+	private void buildNameTable() {
+		int capacity = Integer.highestOneBit(size * 4 - 1) << 1;
+		int[] table = new int[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < size; i++) {
+			String name = normalizeName(getFileNameString(i));
+			insert(table, mask, name, i);
+			String nameW = normalizeName(getFileNameW(i));
+			if (nameW.length() > 0 && !nameW.equals(name)) {
+				insert(table, mask, nameW, i);
+			}
+		}
+		nameTable = table;
+	}
+
+	private static void insert(int[] table, int mask, String name, int index) {
+		int slot = name.hashCode() & mask;
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = index + 1;
+	}
+
+	/**
+	 * @return the name with backslashes replaced by slashes
+	 */
+	public static String normalizeName(String name) {
+		return name.replace('\\', '/');
+	}
+
+	/**
+	 * @return a list creating a {@link FileHeader} for an entry whenever it is
+	 *         asked for
+	 */
+	public List<FileHeader> asList() {
+		return new HeaderList();
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size "
+					+ size);
+		}
+	}
+
+	private class HeaderList extends AbstractList<FileHeader> implements
+			RandomAccess {
+
+		@Override
+		public FileHeader get(int index) {
+			return getFileHeader(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
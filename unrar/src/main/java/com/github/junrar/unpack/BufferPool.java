@@ -0,0 +1,30 @@
+package com.github.junrar.unpack;
+
+/**
+ * Lends the large arrays of the decoder, its window, the memory of the
+ * virtual machine, the heap of the PPM model and the input buffers, so that
+ * they are reused by the next decoder instead of being allocated for every
+ * file. A pool is shared by decoders running at the same time and must be
+ * thread safe.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public interface BufferPool {
+
+	/**
+	 * @param size
+	 *            the length of the array
+	 * @return an array of the given length filled with zeros, which belongs
+	 *         to the caller until it is released
+	 */
+	byte[] acquire(int size);
+
+	/**
+	 * Gives an array back to the pool, the caller must not use it anymore.
+	 *
+	 * @param buffer
+	 *            an array returned by {@link #acquire(int)}
+	 */
+	void release(byte[] buffer);
+}
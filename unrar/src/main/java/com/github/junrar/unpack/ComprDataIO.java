@@ -19,8 +19,8 @@ package com.github.junrar.unpack;
 
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import com.github.junrar.Archive;
 import com.github.junrar.UnrarCallback;
@@ -28,7 +28,8 @@ import com.github.junrar.Volume;
 import com.github.junrar.crc.RarCRC;
 import com.github.junrar.exception.RarException;
 import com.github.junrar.exception.RarException.RarExceptionType;
-import com.github.junrar.io.ReadOnlyAccessInputStream;
+import com.github.junrar.io.IReadOnlyAccess;
+import com.github.junrar.io.ReadAheadReader;
 import com.github.junrar.rarfile.FileHeader;
 
 
@@ -48,7 +49,11 @@ public class ComprDataIO {
 
 	private boolean skipUnpCRC;
 
-	private InputStream inputStream;
+	private IReadOnlyAccess packFile;
+
+	private long packPosition;
+
+	private ReadAheadReader readAhead;
 
 	private OutputStream outputStream;
 
@@ -108,8 +113,15 @@ public class ComprDataIO {
 	public void init(FileHeader hd) throws IOException {
 		long startPos = hd.getPositionInFile() + hd.getHeaderSize();
 		unpPackedSize = hd.getFullPackSize();
-		inputStream = new ReadOnlyAccessInputStream(archive.getRof(), startPos,
-				startPos + unpPackedSize);
+		packFile = archive.getRof();
+		packPosition = startPos;
+		stopReadAhead();
+		if (archive.getReadAheadBufferCount() > 0
+				&& unpPackedSize > archive.getReadAheadBufferSize()) {
+			readAhead = new ReadAheadReader(packFile, startPos,
+					unpPackedSize, archive.getReadAheadBufferCount(),
+					archive.getReadAheadBufferSize());
+		}
 		subHead = hd;
 		curUnpRead = 0;
 		curPackWrite = 0;
@@ -118,23 +130,46 @@ public class ComprDataIO {
 
 	public int unpRead(byte[] addr, int offset, int count) throws IOException,
 			RarException {
+		return unpRead(ByteBuffer.wrap(addr, offset, count));
+	}
+
+	/**
+	 * Reads packed data of the current file into the remaining space of the
+	 * buffer, switching to the next volume if the file is split. The data is
+	 * read with positional reads straight from the archive, so heap and
+	 * direct buffers are filled without an intermediate copy.
+	 *
+	 * @return the number of bytes read or -1 if the next volume is missing
+	 */
+	public int unpRead(ByteBuffer dst) throws IOException, RarException {
 		int retCode = 0, totalRead = 0;
-		while (count > 0) {
-			int readSize = (count > unpPackedSize) ? (int) unpPackedSize
-					: count;
-			retCode = inputStream.read(addr, offset, readSize);
-			if (retCode < 0) {
-				throw new EOFException();
-			}
-			if (subHead.isSplitAfter()) {
-				packedCRC = RarCRC.checkCrc((int) packedCRC, addr, offset,
-						retCode);
+		while (dst.hasRemaining()) {
+			int readSize = (int) Math.min(dst.remaining(), unpPackedSize);
+			retCode = 0;
+			if (readSize > 0) {
+				int start = dst.position();
+				int limit = dst.limit();
+				dst.limit(start + readSize);
+				try {
+					retCode = readAhead != null ? readAhead.read(dst)
+							: packFile.read(dst, packPosition);
+				} finally {
+					dst.limit(limit);
+				}
+				if (retCode < 0) {
+					throw new EOFException();
+				}
+				if (subHead.isSplitAfter()) {
+					ByteBuffer crcData = dst.duplicate();
+					crcData.position(start);
+					crcData.limit(start + retCode);
+					packedCRC = RarCRC.checkCrc((int) packedCRC, crcData);
+				}
 			}
 
 			curUnpRead += retCode;
 			totalRead += retCode;
-			offset += retCode;
-			count -= retCode;
+			packPosition += retCode;
 			unpPackedSize -= retCode;
 			archive.bytesReadRead(retCode);
 			if (unpPackedSize == 0 && subHead.isSplitAfter()) {
@@ -173,6 +208,16 @@ public class ComprDataIO {
 
 	}
 
+	/**
+	 * stops reading ahead the packed data of the current file
+	 */
+	public void stopReadAhead() throws IOException {
+		if (readAhead != null) {
+			readAhead.close();
+			readAhead = null;
+		}
+	}
+
 	public void unpWrite(byte[] addr, int offset, int count) throws IOException {
 		if (!testMode) {
 			// DestFile->Write(Addr,Count);
@@ -0,0 +1,110 @@
+package com.github.junrar.unpack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link BufferPool} that keeps a few released arrays of every size. The
+ * number of arrays per size and the bytes kept in all are bounded, an array
+ * released beyond these bounds is left to the garbage collector. Released
+ * arrays are cleared before they are kept.
+ *
+ * @author $LastChangedBy$
+ * @version $LastChangedRevision$
+ */
+public class DefaultBufferPool implements BufferPool {
+
+	/** the bytes kept by the shared pool */
+	public static final long DEFAULT_MAX_RETAINED = 0x4000000;
+
+	/** the arrays of one size kept by the shared pool */
+	public static final int DEFAULT_MAX_PER_SIZE = 8;
+
+	private static final DefaultBufferPool SHARED = new DefaultBufferPool(
+			DEFAULT_MAX_RETAINED, DEFAULT_MAX_PER_SIZE);
+
+	private final long maxRetained;
+
+	private final int maxPerSize;
+
+	private final Map<Integer, List<byte[]>> free =
+			new HashMap<Integer, List<byte[]>>();
+
+	/** the bytes of all arrays kept */
+	private long retained;
+
+	/**
+	 * @param maxRetained
+	 *            the most bytes kept in all
+	 * @param maxPerSize
+	 *            the most arrays of one size kept
+	 */
+	public DefaultBufferPool(long maxRetained, int maxPerSize) {
+		this.maxRetained = maxRetained;
+		this.maxPerSize = maxPerSize;
+	}
+
+	/**
+	 * @return the pool shared by all archives unless they are given another
+	 *         one
+	 */
+	public static DefaultBufferPool getShared() {
+		return SHARED;
+	}
+
+	public byte[] acquire(int size) {
+		synchronized (this) {
+			List<byte[]> buffers = free.get(size);
+			if (buffers != null && !buffers.isEmpty()) {
+				retained -= size;
+				return buffers.remove(buffers.size() - 1);
+			}
+		}
+		return new byte[size];
+	}
+
+	public void release(byte[] buffer) {
+		if (buffer == null || !hasRoom(buffer.length)) {
+			return;
+		}
+		// cleared outside of the lock, the room is checked again
+		Arrays.fill(buffer, (byte) 0);
+		synchronized (this) {
+			if (hasRoom(buffer.length)) {
+				List<byte[]> buffers = free.get(buffer.length);
+				if (buffers == null) {
+					buffers = new ArrayList<byte[]>();
+					free.put(buffer.length, buffers);
+				}
+				buffers.add(buffer);
+				retained += buffer.length;
+			}
+		}
+	}
+
+	/**
+	 * @return the bytes of all arrays kept
+	 */
+	public synchronized long getRetained() {
+		return retained;
+	}
+
+	/**
+	 * Drops all arrays kept.
+	 */
+	public synchronized void clear() {
+		free.clear();
+		retained = 0;
+	}
+
+	private synchronized boolean hasRoom(int size) {
+		if (retained + size > maxRetained) {
+			return false;
+		}
+		List<byte[]> buffers = free.get(size);
+		return buffers == null || buffers.size() < maxPerSize;
+	}
+}
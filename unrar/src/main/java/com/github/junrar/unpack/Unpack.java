@@ -45,7 +45,15 @@ public final class Unpack extends Unpack20 {
 
     private int ppmEscChar;
 
-    private final RarVM rarVM = new RarVM();
+    private final RarVM rarVM;
+
+    private final BufferPool bufferPool;
+
+    /* reads the code of the filters */
+    private final BitInput vmCodeInput;
+
+    /* the length of the code read last by vmCodeInput */
+    private int vmCodeLength;
 
     /* Filters code, one entry per filter */
     private final List<UnpackFilter> filters = new ArrayList<UnpackFilter>();
@@ -71,10 +79,11 @@ public final class Unpack extends Unpack20 {
 
     private long writtenFileSize;
 
-    private boolean fileExtracted;
-
     private boolean ppmError;
 
+    /** set by {@link #release()}, the buffers may belong to others by then */
+    private boolean released;
+
     private int prevLowDist;
 
     private int lowDistRepCount;
@@ -83,6 +92,23 @@ public final class Unpack extends Unpack20 {
 	    2, 2, 2, 2, 2, 14, 0, 12 };
 
     public Unpack(final ComprDataIO DataIO) {
+	this(DataIO, DefaultBufferPool.getShared());
+    }
+
+    /**
+     * @param DataIO
+     *            reads the packed and writes the unpacked data
+     * @param bufferPool
+     *            lends the window, the input buffers, the memory of the
+     *            virtual machine and the heap of the PPM model, they are given
+     *            back by {@link #release()}
+     */
+    public Unpack(final ComprDataIO DataIO, final BufferPool bufferPool) {
+	super(bufferPool.acquire(BitInput.MAX_SIZE));
+	this.bufferPool = bufferPool;
+	rarVM = new RarVM(bufferPool);
+	vmCodeInput = new BitInput(bufferPool.acquire(BitInput.MAX_SIZE));
+	ppm.getSubAlloc().setBufferPool(bufferPool);
 	unpIO = DataIO;
 	window = null;
 	externalWindow = false;
@@ -91,21 +117,60 @@ public final class Unpack extends Unpack20 {
 	unpSomeRead = false;
     }
 
+    /**
+     * Prepares the decoder for a file which is not solid.
+     *
+     * @param window
+     *            the window to use, its length a power of two, or null to
+     *            use a window of the pool as large as the largest dictionary
+     */
     public void init(final byte[] window) {
 	if (window == null) {
-	    this.window = new byte[Compress.MAXWINSIZE];
-	} else {
-	    this.window = window;
-	    externalWindow = true;
+	    init(Compress.MAXWINSIZE);
+	    return;
+	}
+	releaseWindow();
+	this.window = window;
+	externalWindow = true;
+	setWindowSize(Integer.highestOneBit(window.length));
+	inAddr = 0;
+	unpInitData(false);
+    }
+
+    /**
+     * Prepares the decoder for a file which is not solid with a window of the
+     * pool. A window of the same size borrowed before is kept, a file does not
+     * read the window outside of the data it wrote itself.
+     *
+     * @param windowSize
+     *            the length of the window, a power of two which is not
+     *            smaller than both the dictionary and the unpacked size of
+     *            the file
+     */
+    public void init(final int windowSize) {
+	if (window == null || externalWindow || window.length != windowSize) {
+	    releaseWindow();
+	    window = bufferPool.acquire(windowSize);
+	    externalWindow = false;
 	}
+	setWindowSize(windowSize);
 	inAddr = 0;
 	unpInitData(false);
     }
 
+    private void setWindowSize(final int size) {
+	winSize = size;
+	winMask = size - 1;
+    }
+
     public void doUnpack(final int method, final boolean solid) throws IOException,
 	    RarException {
+	if (released) {
+	    throw new IOException("the decoder has been released");
+	}
 	if (unpIO.getSubHeader().getUnpMethod() == 0x30) {
 	    unstoreFile();
+	    return;
 	}
 	switch (method) {
 	case 15: // rar 1.5 compression
@@ -124,6 +189,7 @@ public final class Unpack extends Unpack20 {
 
     private void unstoreFile() throws IOException, RarException {
 	final byte[] buffer = new byte[0x10000];
+	fileExtracted = true;
 	while (true) {
 	    int code = unpIO.unpRead(buffer, 0, (int) Math.min(buffer.length,
 		    destUnpSize));
@@ -133,6 +199,10 @@ public final class Unpack extends Unpack20 {
 	    unpIO.unpWrite(buffer, 0, code);
 	    if (destUnpSize >= 0)
 		destUnpSize -= code;
+	    if (suspended) {
+		fileExtracted = false;
+		return;
+	    }
 	}
 
     }
@@ -172,7 +242,7 @@ public final class Unpack extends Unpack20 {
 	}
 
 	while (true) {
-	    unpPtr &= Compress.MAXWINMASK;
+	    unpPtr &= winMask;
 
 	    if (inAddr > readBorder) {
 		if (!unpReadBuf()) {
@@ -181,7 +251,7 @@ public final class Unpack extends Unpack20 {
 	    }
 	    // System.out.println(((wrPtr - unpPtr) &
 	    // Compress.MAXWINMASK)+":"+wrPtr+":"+unpPtr);
-	    if (((wrPtr - unpPtr) & Compress.MAXWINMASK) < 260
+	    if (((wrPtr - unpPtr) & winMask) < 260
 		    && wrPtr != unpPtr) {
 
 		UnpWriteBuf();
@@ -358,7 +428,7 @@ public final class Unpack extends Unpack20 {
 
     private void UnpWriteBuf() throws IOException {
 	int WrittenBorder = wrPtr;
-	int WriteSize = (unpPtr - WrittenBorder) & Compress.MAXWINMASK;
+	int WriteSize = (unpPtr - WrittenBorder) & winMask;
 	for (int I = 0; I < prgStack.size(); I++) {
 	    final UnpackFilter flt = prgStack.get(I);
 	    if (flt == null) {
@@ -370,20 +440,20 @@ public final class Unpack extends Unpack20 {
 	    }
 	    final int BlockStart = flt.getBlockStart();// ->BlockStart;
 	    final int BlockLength = flt.getBlockLength();// ->BlockLength;
-	    if (((BlockStart - WrittenBorder) & Compress.MAXWINMASK) < WriteSize) {
+	    if (((BlockStart - WrittenBorder) & winMask) < WriteSize) {
 		if (WrittenBorder != BlockStart) {
 		    UnpWriteArea(WrittenBorder, BlockStart);
 		    WrittenBorder = BlockStart;
-		    WriteSize = (unpPtr - WrittenBorder) & Compress.MAXWINMASK;
+		    WriteSize = (unpPtr - WrittenBorder) & winMask;
 		}
 		if (BlockLength <= WriteSize) {
 		    final int BlockEnd = (BlockStart + BlockLength)
-			    & Compress.MAXWINMASK;
+			    & winMask;
 		    if (BlockStart < BlockEnd || BlockEnd == 0) {
 			// VM.SetMemory(0,Window+BlockStart,BlockLength);
 			rarVM.setMemory(0, window, BlockStart, BlockLength);
 		    } else {
-			final int FirstPartLength = Compress.MAXWINSIZE - BlockStart;
+			final int FirstPartLength = winSize - BlockStart;
 			// VM.SetMemory(0,Window+BlockStart,FirstPartLength);
 			rarVM.setMemory(0, window, BlockStart, FirstPartLength);
 			// VM.SetMemory(FirstPartLength,Window,BlockEnd);
@@ -511,7 +581,7 @@ public final class Unpack extends Unpack20 {
 		    unpSomeRead = true;
 		    writtenFileSize += FilteredDataSize;
 		    WrittenBorder = BlockEnd;
-		    WriteSize = (unpPtr - WrittenBorder) & Compress.MAXWINMASK;
+		    WriteSize = (unpPtr - WrittenBorder) & winMask;
 		} else {
 		    for (int J = I; J < prgStack.size(); J++) {
 			final UnpackFilter filt = prgStack.get(J);
@@ -535,7 +605,7 @@ public final class Unpack extends Unpack20 {
 	    unpSomeRead = true;
 	}
 	if (endPtr < startPtr) {
-	    UnpWriteData(window, startPtr, -startPtr & Compress.MAXWINMASK);
+	    UnpWriteData(window, startPtr, -startPtr & winMask);
 	    UnpWriteData(window, 0, endPtr);
 	    unpAllBuf = true;
 	} else {
@@ -576,8 +646,8 @@ public final class Unpack extends Unpack20 {
 
 	int destPtr = unpPtr - distance;
 	// System.out.println(unpPtr+":"+distance);
-	if (destPtr >= 0 && destPtr < Compress.MAXWINSIZE - 260
-		&& unpPtr < Compress.MAXWINSIZE - 260) {
+	if (destPtr >= 0 && destPtr < winSize - 260
+		&& unpPtr < winSize - 260) {
 
 	    window[unpPtr++] = window[destPtr++];
 
@@ -586,8 +656,8 @@ public final class Unpack extends Unpack20 {
 		window[unpPtr++] = window[destPtr++];
 	} else
 	    while (length-- != 0) {
-		window[unpPtr] = window[destPtr++ & Compress.MAXWINMASK];
-		unpPtr = (unpPtr + 1) & Compress.MAXWINMASK;
+		window[unpPtr] = window[destPtr++ & winMask];
+		unpPtr = (unpPtr + 1) & winMask;
 	    }
     }
 
@@ -802,12 +872,18 @@ public final class Unpack extends Unpack20 {
     }
 
     private boolean addVMCode(final int firstByte, final List<Byte> vmCode, final int length) {
-	final BitInput Inp = new BitInput();
+	final BitInput Inp = vmCodeInput;
 	Inp.InitBitInput();
 	// memcpy(Inp.InBuf,Code,Min(BitInput::MAX_SIZE,CodeSize));
-	for (int i = 0; i < Math.min(BitInput.MAX_SIZE, vmCode.size()); i++) {
+	final int codeLength = Math.min(BitInput.MAX_SIZE, vmCode.size());
+	for (int i = 0; i < codeLength; i++) {
 	    Inp.getInBuf()[i] = vmCode.get(i);
 	}
+	// the bytes after the code read as zeros as in a new buffer
+	if (codeLength < vmCodeLength) {
+	    Arrays.fill(Inp.getInBuf(), codeLength, vmCodeLength, (byte) 0);
+	}
+	vmCodeLength = codeLength;
 	rarVM.init();
 
 	int FiltPos;
@@ -858,7 +934,7 @@ public final class Unpack extends Unpack20 {
 	if ((firstByte & 0x40) != 0) {
 	    BlockStart += 258;
 	}
-	StackFilter.setBlockStart((BlockStart + unpPtr) & Compress.MAXWINMASK);
+	StackFilter.setBlockStart((BlockStart + unpPtr) & winMask);
 	if ((firstByte & 0x20) != 0) {
 	    StackFilter.setBlockLength(RarVM.ReadData(Inp));
 	} else {
@@ -868,7 +944,7 @@ public final class Unpack extends Unpack20 {
 			    : 0);
 	}
 	StackFilter.setNextWindow((wrPtr != unpPtr)
-		&& ((wrPtr - unpPtr) & Compress.MAXWINMASK) <= BlockStart);
+		&& ((wrPtr - unpPtr) & winMask) <= BlockStart);
 
 	// DebugLog("\nNextWindow: UnpPtr=%08x WrPtr=%08x
 	// BlockStart=%08x",UnpPtr,WrPtr,BlockStart);
@@ -1022,6 +1098,22 @@ public final class Unpack extends Unpack20 {
 	this.fileExtracted = false;
     }
 
+    /**
+     * @param offHeap
+     *            whether the heap of the PPM model is allocated outside of the
+     *            java heap and freed by {@link #release()}, the window and the
+     *            memory of the virtual machine stay with the pool
+     */
+    public void setOffHeap(final boolean offHeap) {
+	ppm.getSubAlloc().setOffHeap(offHeap);
+    }
+
+    /**
+     * A suspended decoder returns from {@link #doUnpack(int, boolean)} after
+     * every write of unpacked data and a call made while it is suspended goes
+     * on where the last one stopped. {@link #isFileExtracted()} tells whether
+     * the file is complete. The first call for a file must not be suspended.
+     */
     public void setSuspended(final boolean suspended) {
 	this.suspended = suspended;
     }
@@ -1049,4 +1141,34 @@ public final class Unpack extends Unpack20 {
 	    }
 	}
     }
+
+    /**
+     * Gives all buffers back to the pool, the decoder must not be used
+     * anymore.
+     */
+    public void release() {
+	released = true;
+	cleanUp();
+	releaseWindow();
+	rarVM.release();
+	if (inBuf != null) {
+	    bufferPool.release(inBuf);
+	    inBuf = null;
+	    bufferPool.release(vmCodeInput.getInBuf());
+	}
+    }
+
+    /**
+     * @return whether {@link #release()} has been called
+     */
+    public boolean isReleased() {
+	return released;
+    }
+
+    private void releaseWindow() {
+	if (window != null && !externalWindow) {
+	    bufferPool.release(window);
+	}
+	window = null;
+    }
 }
@@ -18,6 +18,7 @@
 package com.github.junrar.unpack;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.github.junrar.exception.RarException;
@@ -38,6 +39,8 @@ public abstract class Unpack15 extends BitInput
 	
 	protected boolean suspended;
 
+	protected boolean fileExtracted;
+
 	protected boolean unpAllBuf;
 
 	protected ComprDataIO unpIO;
@@ -46,10 +49,18 @@ public abstract class Unpack15 extends BitInput
 
 	protected int readTop;
 
+	/** inBuf wrapped for the positional reads of unpReadBuf */
+	private ByteBuffer inBufData;
+
 	protected long destUnpSize;
 
 	protected byte[] window;
 
+	/** the length of the window, a power of two */
+	protected int winSize = Compress.MAXWINSIZE;
+
+	protected int winMask = Compress.MAXWINMASK;
+
 	protected int[] oldDist = new int[4];
 
 	protected int unpPtr, wrPtr;
@@ -134,10 +145,20 @@ public abstract class Unpack15 extends BitInput
 	static int ShortXor2[] = { 0, 0x40, 0x60, 0xa0, 0xd0, 0xe0, 0xf0, 0xf8,
 			0xfc, 0xc0, 0x80, 0x90, 0x98, 0x9c, 0xb0 };
 
+	/**
+	 * @param inBuf
+	 *            the input buffer
+	 */
+	protected Unpack15(byte[] inBuf)
+	{
+		super(inBuf);
+	}
+
 	protected abstract void unpInitData(boolean solid);
 
 	protected void unpack15(boolean solid) throws IOException, RarException
 	{
+		fileExtracted = true;
 		if (suspended) {
 			unpPtr = wrPtr;
 		} else {
@@ -151,22 +172,24 @@ public abstract class Unpack15 extends BitInput
 				unpPtr = wrPtr;
 			}
 			--destUnpSize;
-		}
-		if (destUnpSize >= 0) {
-			getFlagsBuf();
-			FlagsCnt = 8;
+			// a resumed call goes on with the flags it stopped at
+			if (destUnpSize >= 0) {
+				getFlagsBuf();
+				FlagsCnt = 8;
+			}
 		}
 
 		while (destUnpSize >= 0) {
-			unpPtr &= Compress.MAXWINMASK;
+			unpPtr &= winMask;
 
 			if (inAddr > readTop - 30 && !unpReadBuf()) {
 				break;
 			}
-			if (((wrPtr - unpPtr) & Compress.MAXWINMASK) < 270
+			if (((wrPtr - unpPtr) & winMask) < 270
 					&& wrPtr != unpPtr) {
 				oldUnpWriteBuf();
 				if (suspended) {
+					fileExtracted = false;
 					return;
 				}
 			}
@@ -232,7 +255,13 @@ public abstract class Unpack15 extends BitInput
 		    dataSize=readTop;
 		  }
 		  //int readCode=UnpIO->UnpRead(InBuf+DataSize,(BitInput::MAX_SIZE-DataSize)&~0xf);
-		  int readCode=unpIO.unpRead(inBuf, dataSize, (BitInput.MAX_SIZE-dataSize)&~0xf);
+		  if (inBufData == null || inBufData.array() != inBuf) {
+		    inBufData = ByteBuffer.wrap(inBuf);
+		  }
+		  inBufData.clear();
+		  inBufData.limit(dataSize + ((BitInput.MAX_SIZE - dataSize) & ~0xf));
+		  inBufData.position(dataSize);
+		  int readCode=unpIO.unpRead(inBufData);
 		  if (readCode>0){
 		    readTop+=readCode;
 		  }
@@ -586,8 +615,8 @@ public abstract class Unpack15 extends BitInput
 	{
 		destUnpSize -= Length;
 		while ((Length--) != 0) {
-			window[unpPtr] = window[(unpPtr - Distance) & Compress.MAXWINMASK];
-			unpPtr = (unpPtr + 1) & Compress.MAXWINMASK;
+			window[unpPtr] = window[(unpPtr - Distance) & winMask];
+			unpPtr = (unpPtr + 1) & winMask;
 		}
 	}
 
@@ -607,7 +636,7 @@ public abstract class Unpack15 extends BitInput
 			unpSomeRead = true;
 		}
 		if (unpPtr < wrPtr) {
-			unpIO.unpWrite(window, wrPtr, -wrPtr & Compress.MAXWINMASK);
+			unpIO.unpWrite(window, wrPtr, -wrPtr & winMask);
 			unpIO.unpWrite(window, 0, unpPtr);
 			unpAllBuf = true;
 		} else {
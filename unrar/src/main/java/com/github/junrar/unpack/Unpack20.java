@@ -81,11 +81,21 @@ public abstract class Unpack20 extends Unpack15
 
 	public static final int[] SDBits = { 2, 2, 3, 4, 5, 6, 6, 6 };
 
+	/**
+	 * @param inBuf
+	 *            the input buffer
+	 */
+	protected Unpack20(byte[] inBuf)
+	{
+		super(inBuf);
+	}
+
 	protected void unpack20(boolean solid) throws IOException, RarException
 	{
 
 		int Bits;
 
+		fileExtracted = true;
 		if (suspended) {
 			unpPtr = wrPtr;
 		} else {
@@ -102,16 +112,18 @@ public abstract class Unpack20 extends Unpack15
 		}
 
 		while (destUnpSize >= 0) {
-			unpPtr &= Compress.MAXWINMASK;
+			unpPtr &= winMask;
 
 			if (inAddr > readTop - 30)
 				if (!unpReadBuf())
 					break;
-			if (((wrPtr - unpPtr) & Compress.MAXWINMASK) < 270
+			if (((wrPtr - unpPtr) & winMask) < 270
 					&& wrPtr != unpPtr) {
 				oldUnpWriteBuf();
-				if (suspended)
+				if (suspended) {
+					fileExtracted = false;
 					return;
+				}
 			}
 			if (UnpAudioBlock != 0) {
 				int AudioNumber = decodeNumber(MD[UnpCurChannel]);
@@ -207,8 +219,8 @@ public abstract class Unpack20 extends Unpack15
 		destUnpSize -= Length;
 
 		int DestPtr = unpPtr - Distance;
-		if (DestPtr < Compress.MAXWINSIZE - 300
-				&& unpPtr < Compress.MAXWINSIZE - 300) {
+		if (DestPtr >= 0 && DestPtr < winSize - 300
+				&& unpPtr < winSize - 300) {
 			window[unpPtr++] = window[DestPtr++];
 			window[unpPtr++] = window[DestPtr++];
 			while (Length > 2) {
@@ -217,8 +229,8 @@ public abstract class Unpack20 extends Unpack15
 			}
 		} else {
 			while ((Length--) != 0) {
-				window[unpPtr] = window[DestPtr++ & Compress.MAXWINMASK];
-				unpPtr = (unpPtr + 1) & Compress.MAXWINMASK;
+				window[unpPtr] = window[DestPtr++ & winMask];
+				unpPtr = (unpPtr + 1) & winMask;
 			}
 		}
 	}
@@ -256,6 +268,24 @@ public abstract class Unpack20 extends Unpack15
 			}
 		}
 		dec.setMaxNum(size);
+
+		// every code of at most quickBits bits fills all entries of the
+		// quick tables which start with it
+		int quickBits = dec.getQuickBits();
+		int[] decodeLen = dec.getDecodeLen();
+		int[] quickLen = dec.getQuickLen();
+		int[] quickNum = dec.getQuickNum();
+		int bits = 1;
+		for (int code = 0; code < quickLen.length; code++) {
+			int bitField = code << (16 - quickBits);
+			while (bits < quickBits && bitField >= decodeLen[bits]) {
+				bits++;
+			}
+			int pos = dec.getDecodePos()[bits]
+					+ ((bitField - decodeLen[bits - 1]) >>> (16 - bits));
+			quickLen[code] = bits;
+			quickNum[code] = dec.getDecodeNum()[pos < size ? pos : 0];
+		}
 	}
 
 	protected int decodeNumber(Decode dec)
@@ -322,6 +352,12 @@ public abstract class Unpack20 extends Unpack15
 //		}
 //		return (dec.getDecodeNum()[N]);
         int[] decodeLen = dec.getDecodeLen();
+        int quickBits = dec.getQuickBits();
+        if (bitField < decodeLen[quickBits]) {
+            int code = (int) bitField >>> (16 - quickBits);
+            addbits(dec.getQuickLen()[code]);
+            return dec.getQuickNum()[code];
+        }
         if (bitField < decodeLen[8]) {
 			if (bitField < decodeLen[4]) {
 				if (bitField < decodeLen[2]) {
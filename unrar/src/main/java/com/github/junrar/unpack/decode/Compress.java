@@ -27,6 +27,7 @@ public class Compress {
 	public static final int CODEBUFSIZE   		= 0x4000;
 	public static final int MAXWINSIZE    		= 0x400000;
 	public static final int MAXWINMASK      	= (MAXWINSIZE-1);
+	public static final int MINWINSIZE    		= 0x40000;  /* smallest window, a filter block fits into one flush */
 
 	public static final int LOW_DIST_REP_COUNT 	= 16;
 
@@ -25,6 +25,12 @@ package com.github.junrar.unpack.decode;
  */
 public class Decode
 {
+	/**
+	 * the most bits of a code looked up in the quick tables, the tables of
+	 * the literals use them all and the smaller tables 3 bits less
+	 */
+	public static final int MAX_QUICK_BITS = 10;
+
 	private int maxNum;
 
 	private final int[] decodeLen = new int[16];
@@ -33,6 +39,28 @@ public class Decode
 
 	protected int[] decodeNum = new int[2];
 
+	private final int quickBits;
+
+	private final int[] quickLen;
+
+	private final int[] quickNum;
+
+	public Decode()
+	{
+		this(MAX_QUICK_BITS - 3);
+	}
+
+	/**
+	 * @param quickBits the number of leading bits of a code which are
+	 * resolved by a single lookup in the quick tables
+	 */
+	protected Decode(int quickBits)
+	{
+		this.quickBits = quickBits;
+		quickLen = new int[1 << quickBits];
+		quickNum = new int[1 << quickBits];
+	}
+
 	/**
 	 * returns the decode Length array
 	 * @return decodeLength
@@ -60,6 +88,35 @@ public class Decode
 		return decodePos;
 	}
 
+	/**
+	 * returns the number of bits resolved by the quick tables
+	 * @return quickBits
+	 */
+	public int getQuickBits()
+	{
+		return quickBits;
+	}
+
+	/**
+	 * returns the length of the code starting with the index, for codes of
+	 * at most quickBits bits
+	 * @return quickLen
+	 */
+	public int[] getQuickLen()
+	{
+		return quickLen;
+	}
+
+	/**
+	 * returns the number decoded from the code starting with the index, for
+	 * codes of at most quickBits bits
+	 * @return quickNum
+	 */
+	public int[] getQuickNum()
+	{
+		return quickNum;
+	}
+
 	/**
 	 * returns the max num
 	 * @return maxNum
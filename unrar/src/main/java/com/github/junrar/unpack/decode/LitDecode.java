@@ -30,6 +30,7 @@ public class LitDecode extends Decode
 	 */
 	public LitDecode()
 	{
+		super(MAX_QUICK_BITS);
 		decodeNum = new int[Compress.NC];
 	}
 
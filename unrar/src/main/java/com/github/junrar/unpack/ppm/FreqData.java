@@ -17,7 +17,7 @@
  */
 package com.github.junrar.unpack.ppm;
 
-import com.github.junrar.io.Raw;
+import java.nio.ByteBuffer;
 
 /**
  * DOCUMENT ME
@@ -35,30 +35,30 @@ public class FreqData extends Pointer{
 //        STATE _PACK_ATTR * Stats;
 //    };
 
-	public FreqData(final byte[]mem){
+	public FreqData(final ByteBuffer mem){
 		super(mem);
 	}
 
-    public FreqData init(final byte[] mem) {
-        this.mem = mem;
+    public FreqData init(final ByteBuffer mem) {
+        setMem(mem);
         pos = 0;
         return this;
     }
 
     public int getSummFreq() {
-		return Raw.readShortLittleEndian(mem,  pos)&0xffff;
+		return getShort(pos)&0xffff;
 	}
 
 	public void setSummFreq(final int summFreq) {
-        Raw.writeShortLittleEndian(mem, pos, (short)summFreq);
+        putShort(pos, (short)summFreq);
 	}
 
     public void incSummFreq(final int dSummFreq) {
-        Raw.incShortLittleEndian(mem, pos, dSummFreq);
+        putShort(pos, (short)(getShort(pos)+dSummFreq));
     }
 
     public int getStats() {
-        return Raw.readIntLittleEndian(mem,  pos+2);
+        return getInt(pos+2);
 	}
 
 	public void setStats(final State state) {
@@ -66,7 +66,7 @@ public class FreqData extends Pointer{
 	}
 
     public void setStats(final int state) {
-        Raw.writeIntLittleEndian(mem, pos+2, state);
+        putInt(pos+2, state);
 	}
 
     @Override
@@ -18,6 +18,7 @@
 package com.github.junrar.unpack.ppm;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.github.junrar.exception.RarException;
@@ -234,6 +235,11 @@ public class ModelPPM
         // Debug
         //subAlloc.dumpHeap();
 
+		// the contexts point into the heap, which is gone once the
+		// allocator has been stopped
+		if (subAlloc.getHeap() == null) {
+			return (-1);
+		}
 		if (minContext.getAddress() <= subAlloc.getPText()
 				|| minContext.getAddress() > subAlloc.getHeapEnd()) {
 			return (-1);
@@ -401,7 +407,7 @@ public class ModelPPM
 		return foundState;
 	}
 
-	public byte[] getHeap()
+	public ByteBuffer getHeap()
 	{
 		return subAlloc.getHeap();
 	}
@@ -468,7 +474,7 @@ public class ModelPPM
 		if (pps == 0) {
 			return pc.getAddress();
 		}
-		upState.setSymbol(getHeap()[upBranch.getAddress()]);// UpState.Symbol=*(byte*)
+		upState.setSymbol(getHeap().get(upBranch.getAddress()));// UpState.Symbol=*(byte*)
 															// UpBranch;
 		// UpState.Successor=(PPM_CONTEXT*) (((byte*) UpBranch)+1);
 		upState.setSuccessor(upBranch.getAddress() + 1); //TODO check if +1 necessary
@@ -555,7 +561,7 @@ public class ModelPPM
 			}
 			return;
 		}
-		subAlloc.getHeap()[subAlloc.getPText()] = (byte)fs.getSymbol();
+		subAlloc.getHeap().put(subAlloc.getPText(), (byte)fs.getSymbol());
 		subAlloc.incPText();
 		successor.setAddress(subAlloc.getPText());
 		if (subAlloc.getPText() >= subAlloc.getFakeUnitsStart()) {
@@ -17,7 +17,7 @@
  */
 package com.github.junrar.unpack.ppm;
 
-import com.github.junrar.io.Raw;
+import java.nio.ByteBuffer;
 
 /**
  * DOCUMENT ME
@@ -56,15 +56,15 @@ public class PPMContext extends Pointer
     private PPMContext tempPPMContext = null;
     private final int[] ps = new int[256];
 
-	public PPMContext(final byte[] mem)
+	public PPMContext(final ByteBuffer mem)
 	{
 		super(mem);
 		oneState = new State(mem);
 		freqData = new FreqData(mem);
 	}
 
-    public PPMContext init(final byte[] mem) {
-		this.mem = mem;
+    public PPMContext init(final ByteBuffer mem) {
+		setMem(mem);
         pos = 0;
 		oneState.init(mem);
 		freqData.init(mem);
@@ -85,7 +85,7 @@ public class PPMContext extends Pointer
 	public final int getNumStats()
 	{
 		if (mem!=null){
-			numStats = Raw.readShortLittleEndian(mem,  pos)&0xffff;
+			numStats = getShort(pos)&0xffff;
 		}
 		return numStats;
 	}
@@ -94,7 +94,7 @@ public class PPMContext extends Pointer
 	{
 		this.numStats = numStats&0xffff;
 		if (mem != null) {
-			Raw.writeShortLittleEndian(mem, pos, (short)numStats);
+			putShort(pos, (short)numStats);
 		}
 	}
 
@@ -111,7 +111,7 @@ public class PPMContext extends Pointer
 	public int getSuffix()
 	{
 		if(mem!=null){
-			suffix = Raw.readIntLittleEndian(mem,  pos+8);
+			suffix = getInt(pos+8);
 		}
 		return suffix;
 	}
@@ -125,7 +125,7 @@ public class PPMContext extends Pointer
 	{
 		this.suffix = suffix;
 		if (mem != null) {
-			Raw.writeIntLittleEndian(mem, pos + 8, suffix);
+			putInt(pos + 8, suffix);
 		}
 	}
 
@@ -137,7 +137,7 @@ public class PPMContext extends Pointer
         freqData.setAddress(pos+2);
 	}
 
-    private PPMContext getTempPPMContext(final byte[] mem) {
+    private PPMContext getTempPPMContext(final ByteBuffer mem) {
         if (tempPPMContext == null) {
             tempPPMContext = new PPMContext(null);
         }
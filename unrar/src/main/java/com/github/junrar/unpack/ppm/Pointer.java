@@ -17,26 +17,45 @@
  */
 package com.github.junrar.unpack.ppm;
 
+import java.nio.ByteBuffer;
+
+import com.github.junrar.io.Raw;
+
 /**
- * Simulates Pointers on a single mem block as a byte[]
+ * Simulates Pointers on a single mem block as a little endian {@link ByteBuffer}.
+ * The array of a heap buffer is accessed directly, which is faster than going
+ * through the buffer.
  *
  * @author $LastChangedBy$
  * @version $LastChangedRevision$
  */
 public abstract class Pointer
 {
-	protected byte[] mem;
+	protected ByteBuffer mem;
+	/** the array of mem, null if mem is a direct buffer */
+	protected byte[] array;
 	protected int pos;
 	
 	/** 
-	 * Initialize the object with the array (may be null)
-	 * @param mem the byte array
+	 * Initialize the object with the buffer (may be null)
+	 * @param mem the byte buffer
 	 */
-	public Pointer(byte[] mem){
-		this.mem = mem;
+	public Pointer(ByteBuffer mem){
+		setMem(mem);
 	}
+
 	/**
-	 * returns the position of this object in the byte[] 
+	 * @param mem the byte buffer (may be null)
+	 */
+	protected void setMem(ByteBuffer mem) {
+		if (mem != this.mem) {
+			this.mem = mem;
+			array = mem != null && mem.hasArray() && mem.arrayOffset() == 0 ? mem
+					.array() : null;
+		}
+	}
+	/**
+	 * returns the position of this object in the buffer 
 	 * @return the address of this object
 	 */
 	public int getAddress(){
@@ -45,7 +64,7 @@ public abstract class Pointer
 	}
 
 	/**
-	 * needs to set the fields of this object to the values in the byte[] 
+	 * needs to set the fields of this object to the values in the buffer 
 	 * at the given position.
 	 * be aware of the byte order
 	 * @param pos the position this object should point to
@@ -53,7 +72,45 @@ public abstract class Pointer
 	 */
 	public void setAddress(int pos) {
         assert (mem != null);
-        assert (pos >= 0) && (pos < mem.length) : pos;
+        assert (pos >= 0) && (pos < mem.capacity()) : pos;
         this.pos = pos;
     }
+
+	protected final byte getByte(int index) {
+		return array != null ? array[index] : mem.get(index);
+	}
+
+	protected final void putByte(int index, byte value) {
+		if (array != null) {
+			array[index] = value;
+		} else {
+			mem.put(index, value);
+		}
+	}
+
+	protected final short getShort(int index) {
+		return array != null ? Raw.readShortLittleEndian(array, index) : mem
+				.getShort(index);
+	}
+
+	protected final void putShort(int index, short value) {
+		if (array != null) {
+			Raw.writeShortLittleEndian(array, index, value);
+		} else {
+			mem.putShort(index, value);
+		}
+	}
+
+	protected final int getInt(int index) {
+		return array != null ? Raw.readIntLittleEndian(array, index) : mem
+				.getInt(index);
+	}
+
+	protected final void putInt(int index, int value) {
+		if (array != null) {
+			Raw.writeIntLittleEndian(array, index, value);
+		} else {
+			mem.putInt(index, value);
+		}
+	}
 }
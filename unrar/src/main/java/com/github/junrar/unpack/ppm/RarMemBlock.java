@@ -17,7 +17,7 @@
  */
 package com.github.junrar.unpack.ppm;
 
-import com.github.junrar.io.Raw;
+import java.nio.ByteBuffer;
 
 
 
@@ -36,7 +36,7 @@ public class RarMemBlock extends Pointer
 
 	private int next, prev; // Pointer RarMemBlock
 
-	public RarMemBlock(byte[] mem)
+	public RarMemBlock(ByteBuffer mem)
 	{
 		super(mem);
 	}
@@ -66,7 +66,7 @@ public class RarMemBlock extends Pointer
 	public int getNext()
 	{
 		if(mem!=null){
-			next = Raw.readIntLittleEndian(mem,  pos+4);
+			next = getInt(pos+4);
 		}
 		return next;
 	}
@@ -80,14 +80,14 @@ public class RarMemBlock extends Pointer
 	{
 		this.next = next;
 		if (mem != null) {
-			Raw.writeIntLittleEndian(mem, pos + 4, next);
+			putInt(pos + 4, next);
 		}
 	}
 
 	public int getNU()
 	{
 		if(mem!=null){
-			NU = Raw.readShortLittleEndian(mem,  pos+2)&0xffff;
+			NU = getShort(pos+2)&0xffff;
 		}
 		return NU;
 	}
@@ -96,14 +96,14 @@ public class RarMemBlock extends Pointer
 	{
 		NU = nu&0xffff;
 		if (mem != null) {
-			Raw.writeShortLittleEndian(mem, pos + 2, (short)nu);
+			putShort(pos + 2, (short)nu);
 		}
 	}
 
 	public int getPrev()
 	{
 		if(mem!=null){
-			prev = Raw.readIntLittleEndian(mem,  pos+8);
+			prev = getInt(pos+8);
 		}
 		return prev;
 	}
@@ -117,14 +117,14 @@ public class RarMemBlock extends Pointer
 	{
 		this.prev = prev;
 		if (mem != null) {
-			Raw.writeIntLittleEndian(mem, pos + 8, prev);
+			putInt(pos + 8, prev);
 		}
 	}
 
 	public int getStamp()
 	{
 		if(mem!=null){
-			stamp =  Raw.readShortLittleEndian(mem,  pos)&0xffff;
+			stamp =  getShort(pos)&0xffff;
 		}
 		return stamp;
 	}
@@ -133,7 +133,7 @@ public class RarMemBlock extends Pointer
 	{
 		this.stamp = stamp;
 		if (mem != null) {
-			Raw.writeShortLittleEndian(mem, pos, (short)stamp);
+			putShort(pos, (short)stamp);
 		}
 	}
 }
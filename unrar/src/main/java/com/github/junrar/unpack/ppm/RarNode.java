@@ -17,7 +17,7 @@
  */
 package com.github.junrar.unpack.ppm;
 
-import com.github.junrar.io.Raw;
+import java.nio.ByteBuffer;
 
 
 
@@ -32,13 +32,13 @@ public class RarNode extends Pointer{
 
 	public static final int size = 4;
 
-	public RarNode(final byte[] mem){
+	public RarNode(final ByteBuffer mem){
 		super(mem);
 	}
 
 	public int getNext() {
 		if(mem!=null){
-			next = Raw.readIntLittleEndian(mem,  pos);
+			next = getInt(pos);
 		}
 		return next;
 	}
@@ -50,7 +50,7 @@ public class RarNode extends Pointer{
 	public void setNext(final int next) {
 		this.next = next;
 		if(mem!=null){
-			Raw.writeIntLittleEndian(mem, pos, next);
+			putInt(pos, next);
 		}
 	}
 
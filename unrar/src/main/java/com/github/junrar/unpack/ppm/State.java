@@ -17,7 +17,7 @@
  */
 package com.github.junrar.unpack.ppm;
 
-import com.github.junrar.io.Raw;
+import java.nio.ByteBuffer;
 
 /**
  * DOCUMENT ME
@@ -29,38 +29,38 @@ public class State extends Pointer {
 
 	public static final int size = 6;
 
-	public State(final byte[] mem) {
+	public State(final ByteBuffer mem) {
 		super(mem);
 	}
 
-    public State init(final byte[] mem) {
-		this.mem = mem;
+    public State init(final ByteBuffer mem) {
+		setMem(mem);
         pos = 0;
         return this;
     }
 
 	public int getSymbol() {
-        return mem[pos]&0xff;
+        return getByte(pos)&0xff;
 	}
 
 	public void setSymbol(final int symbol) {
-        mem[pos] = (byte)symbol;
+        putByte(pos, (byte)symbol);
 	}
 
 	public int getFreq() {
-        return mem[pos+1]&0xff;
+        return getByte(pos+1)&0xff;
 	}
 
 	public void setFreq(final int freq) {
-        mem[pos + 1] = (byte)freq;
+        putByte(pos + 1, (byte)freq);
 	}
 
     public void incFreq(final int dFreq) {
-        mem[pos + 1] += dFreq;
+        putByte(pos + 1, (byte)(getByte(pos + 1) + dFreq));
     }
 
 	public int getSuccessor() {
-        return Raw.readIntLittleEndian(mem, pos+2);
+        return getInt(pos+2);
 	}
 
 	public void setSuccessor(final PPMContext successor) {
@@ -68,7 +68,7 @@ public class State extends Pointer {
 	}
 
 	public void setSuccessor(final int successor) {
-        Raw.writeIntLittleEndian(mem, pos + 2, successor);
+        putInt(pos + 2, successor);
 	}
 
 	public void setValues(final StateRef state){
@@ -78,7 +78,12 @@ public class State extends Pointer {
 	}
 
 	public void setValues(final State ptr){
-        System.arraycopy(ptr.mem, ptr.pos, mem, pos, size);
+        if (array != null && ptr.array != null) {
+            System.arraycopy(ptr.array, ptr.pos, array, pos, size);
+        } else {
+            putInt(pos, ptr.getInt(ptr.pos));
+            putShort(pos + 4, ptr.getShort(ptr.pos + 4));
+        }
 	}
 
 	public State decAddress(){
@@ -92,12 +97,13 @@ public class State extends Pointer {
 	}
 
     public static void ppmdSwap(final State ptr1, final State ptr2) {
-        final byte[] mem1=ptr1.mem, mem2=ptr2.mem;
-		for (int i=0, pos1=ptr1.pos, pos2=ptr2.pos; i < size; i++, pos1++, pos2++) {
-			final byte temp = mem1[pos1];
-			mem1[pos1] = mem2[pos2];
-			mem2[pos2] = temp;
-		}
+        final int pos1=ptr1.pos, pos2=ptr2.pos;
+        final int temp = ptr1.getInt(pos1);
+        final short temp2 = ptr1.getShort(pos1 + 4);
+        ptr1.putInt(pos1, ptr2.getInt(pos2));
+        ptr1.putShort(pos1 + 4, ptr2.getShort(pos2 + 4));
+        ptr2.putInt(pos2, temp);
+        ptr2.putShort(pos2 + 4, temp2);
     }
 
     @Override
@@ -17,7 +17,13 @@
  */
 package com.github.junrar.unpack.ppm;
 
-import java.util.Arrays;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.github.junrar.unpack.BufferPool;
+import com.github.junrar.unpack.DefaultBufferPool;
 
 /**
  * DOCUMENT ME
@@ -51,7 +57,11 @@ public class SubAllocator {
     // byte *pText, *UnitsStart,*HeapEnd,*FakeUnitsStart;
     private int pText, unitsStart, heapEnd, fakeUnitsStart;
 
-    private byte[] heap;
+    private ByteBuffer heap;
+
+    private BufferPool bufferPool = DefaultBufferPool.getShared();
+
+    private boolean offHeap;
 
     private int freeListPos;
 
@@ -71,6 +81,32 @@ public class SubAllocator {
 	subAllocatorSize = 0;
     }
 
+    /**
+     * @param bufferPool
+     *            lends the heap of the model
+     */
+    public void setBufferPool(final BufferPool bufferPool) {
+	this.bufferPool = bufferPool;
+    }
+
+    /**
+     * @return whether the heap of the model is allocated outside of the java
+     *         heap
+     */
+    public boolean isOffHeap() {
+	return offHeap;
+    }
+
+    /**
+     * @param offHeap
+     *            whether the heap of the model is a direct buffer, which is
+     *            freed by {@link #stopSubAllocator()} instead of being left to
+     *            the garbage collector. Takes effect with the next heap.
+     */
+    public void setOffHeap(final boolean offHeap) {
+	this.offHeap = offHeap;
+    }
+
     private void insertNode(final int p/* rarnode ptr */, final int indx) {
 	final RarNode temp = tempRarNode;
 	temp.setAddress(p);
@@ -113,6 +149,11 @@ public class SubAllocator {
     public void stopSubAllocator() {
 	if (subAllocatorSize != 0) {
 	    subAllocatorSize = 0;
+	    if (heap.isDirect()) {
+		free(heap);
+	    } else {
+		bufferPool.release(heap.array());
+	    }
 	    heap = null;
 	    heapStart = 1;
 	    // rarfree(HeapStart);
@@ -143,7 +184,9 @@ public class SubAllocator {
 	tempMemBlockPos = realAllocSize;
 	realAllocSize += RarMemBlock.size;
 
-	heap = new byte[realAllocSize];
+	heap = offHeap ? ByteBuffer.allocateDirect(realAllocSize) : ByteBuffer
+		.wrap(bufferPool.acquire(realAllocSize));
+	heap.order(ByteOrder.LITTLE_ENDIAN);
 	heapStart = 1;
 	heapEnd = heapStart + allocSize - UNIT_SIZE;
 	subAllocatorSize = t;
@@ -174,7 +217,7 @@ public class SubAllocator {
 	final RarMemBlock p1 = tempRarMemBlock3;
 	int i, k, sz;
 	if (loUnit != hiUnit) {
-	    heap[loUnit] = 0;
+	    heap.put(loUnit, (byte) 0);
 	}
 	for (i = 0, s0.setPrev(s0), s0.setNext(s0); i < N_INDEXES; i++) {
 	    while (freeList[i].getNext() != 0) {
@@ -272,7 +315,7 @@ public class SubAllocator {
 	final int ptr = allocUnits(OldNU + 1);
 	if (ptr != 0) {
 	    // memcpy(ptr,OldPtr,U2B(OldNU));
-	    System.arraycopy(heap, oldPtr, heap, ptr, U2B(OldNU));
+	    copy(oldPtr, ptr, U2B(OldNU));
 	    insertNode(oldPtr, i0);
 	}
 	return ptr;
@@ -292,7 +335,7 @@ public class SubAllocator {
 	    // for (int i = 0; i < U2B(NewNU); i++) {
 	    // heap[ptr + i] = heap[OldPtr + i];
 	    // }
-	    System.arraycopy(heap, oldPtr, heap, ptr, U2B(newNU));
+	    copy(oldPtr, ptr, U2B(newNU));
 	    insertNode(oldPtr, i0);
 	    return ptr;
 	} else {
@@ -339,9 +382,9 @@ public class SubAllocator {
 
     public void initSubAllocator() {
 	int i, k;
-	Arrays
-		.fill(heap, freeListPos, freeListPos + sizeOfFreeList(),
-			(byte) 0);
+	for (i = freeListPos; i < freeListPos + sizeOfFreeList(); i++) {
+	    heap.put(i, (byte) 0);
+	}
 
 	pText = heapStart;
 
@@ -380,10 +423,54 @@ public class SubAllocator {
 	return freeList.length * RarNode.size;
     }
 
-    public byte[] getHeap() {
+    public ByteBuffer getHeap() {
 	return heap;
     }
 
+    /**
+     * copies between two blocks of the heap which do not overlap
+     */
+    private void copy(final int from, final int to, final int length) {
+	if (heap.hasArray()) {
+	    final byte[] array = heap.array();
+	    System.arraycopy(array, from, array, to, length);
+	} else {
+	    final ByteBuffer src = heap.duplicate();
+	    src.limit(from + length);
+	    src.position(from);
+	    final ByteBuffer dst = heap.duplicate();
+	    dst.position(to);
+	    dst.put(src);
+	}
+    }
+
+    /**
+     * frees the memory of a direct buffer now, the cleaner of the buffer is
+     * not public and is reached through sun.misc.Unsafe since java 9 or the
+     * buffer itself before. If neither works the memory is freed once the
+     * buffer is collected.
+     */
+    private static void free(final ByteBuffer buffer) {
+	try {
+	    final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+	    final Field field = unsafeClass.getDeclaredField("theUnsafe");
+	    field.setAccessible(true);
+	    unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(
+		    field.get(null), buffer);
+	    return;
+	} catch (final Exception e) {
+	    // before java 9
+	}
+	try {
+	    final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+	    cleanerMethod.setAccessible(true);
+	    final Object cleaner = cleanerMethod.invoke(buffer);
+	    cleaner.getClass().getMethod("clean").invoke(cleaner);
+	} catch (final Exception e) {
+	    // left to the garbage collector
+	}
+    }
+
     // Debug
     // public void dumpHeap() {
     // File file = new File("P:\\test\\heapdumpj");
@@ -18,7 +18,11 @@
 package com.github.junrar.unpack.vm;
 
 /**
- * DOCUMENT ME
+ * Reads bit fields from inBuf at inAddr and inBit. A field is peeked with
+ * {@link #getbits()} or {@link #getbits32()} and consumed with
+ * {@link #addbits(int)}. Every peek reads the bytes at inAddr again and no
+ * bits are cached, so the decoders may move inAddr and refill inBuf without
+ * telling the reader.
  *
  * @author $LastChangedBy$
  * @version $LastChangedRevision$
@@ -66,6 +70,18 @@ public class BitInput {
               ((inBuf[inAddr+2] & 0xff))) >>> (8-inBit)) & 0xffff);
     }
 
+    /**
+     * @return the next 32 bits, read from the five bytes at inAddr at once
+     */
+    public int getbits32()
+    {
+      return (((inBuf[inAddr] & 0xff) << 24) |
+              ((inBuf[inAddr+1] & 0xff) << 16) |
+              ((inBuf[inAddr+2] & 0xff) << 8) |
+              (inBuf[inAddr+3] & 0xff)) << inBit |
+             (inBuf[inAddr+4] & 0xff) >>> (8-inBit);
+    }
+
     /**
      *  
      */
@@ -74,6 +90,14 @@ public class BitInput {
       inBuf=new byte[MAX_SIZE];
     }
 
+    /**
+     * @param inBuf the input buffer, at least {@link #MAX_SIZE} bytes
+     */
+    public BitInput(byte[] inBuf)
+    {
+      this.inBuf=inBuf;
+    }
+
     /**
      * @param Bits add the bits
      */
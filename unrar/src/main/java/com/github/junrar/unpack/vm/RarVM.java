@@ -22,6 +22,8 @@ import java.util.Vector;
 
 import com.github.junrar.crc.RarCRC;
 import com.github.junrar.io.Raw;
+import com.github.junrar.unpack.BufferPool;
+import com.github.junrar.unpack.DefaultBufferPool;
 
 
 /**
@@ -53,13 +55,40 @@ public class RarVM extends BitInput {
 	private int codeSize;
 	private int IP;
 
+	private final BufferPool bufferPool;
+
 	public RarVM() {
+		this(DefaultBufferPool.getShared());
+	}
+
+	/**
+	 * @param bufferPool
+	 *            lends the memory and the input buffer
+	 */
+	public RarVM(BufferPool bufferPool) {
+		super(bufferPool.acquire(MAX_SIZE));
+		this.bufferPool = bufferPool;
 		mem = null;
 	}
 
 	public void init() {
 		if (mem == null) {
-			mem = new byte[VM_MEMSIZE + 4];
+			mem = bufferPool.acquire(VM_MEMSIZE + 4);
+		}
+	}
+
+	/**
+	 * Gives the memory and the input buffer back to the pool, the machine
+	 * must not be used anymore.
+	 */
+	public void release() {
+		if (mem != null) {
+			bufferPool.release(mem);
+			mem = null;
+		}
+		if (inBuf != null) {
+			bufferPool.release(inBuf);
+			inBuf = null;
 		}
 	}
 
@@ -878,10 +907,8 @@ public class RarVM extends BitInput {
 			return (data);
 		default:
 			rarVM.faddbits(2);
-			data = (rarVM.fgetbits() << 16);
-			rarVM.faddbits(16);
-			data |= rarVM.fgetbits();
-			rarVM.faddbits(16);
+			data = rarVM.getbits32();
+			rarVM.faddbits(32);
 			return (data);
 		}
 	}
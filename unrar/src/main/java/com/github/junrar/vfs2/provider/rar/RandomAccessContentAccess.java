@@ -23,20 +23,39 @@ import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.util.RandomAccessMode;
 
-import com.github.junrar.io.IReadOnlyAccess;
+import com.github.junrar.io.BufferedReadOnlyAccess;
 
 
 /**
+ * Block buffered access to a {@link RandomAccessContent}. The content is only
+ * seeked and read once per block, which keeps listing and extraction from
+ * remote file systems from issuing a request for every few bytes.
+ * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  * 
  */
-public class RandomAccessContentAccess implements IReadOnlyAccess {
+public class RandomAccessContentAccess extends BufferedReadOnlyAccess {
+	/**
+	 * the default size of a buffered block (64 KB)
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 0x10000;
+
 	private final RandomAccessContent rac;
 
 	/**
 	 * @param rac
 	 */
 	public RandomAccessContentAccess(RandomAccessContent rac) {
+		this(rac, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param rac
+	 * @param blockSize
+	 *            the size of the buffered block
+	 */
+	public RandomAccessContentAccess(RandomAccessContent rac, int blockSize) {
+		super(blockSize);
 		this.rac = rac;
 	}
 
@@ -49,27 +68,23 @@ public class RandomAccessContentAccess implements IReadOnlyAccess {
 		this(file.getContent().getRandomAccessContent(RandomAccessMode.READ));
 	}
 
-	public long getPosition() throws IOException {
-		return rac.getFilePointer();
-	}
-
-	public void setPosition(long pos) throws IOException {
-		rac.seek(pos);
-	}
-
-	public int read() throws IOException {
-		return rac.readByte();
-	}
-
-	public int read(byte[] buffer, int off, int count) throws IOException {
-		return rac.getInputStream().read(buffer, off, count);
-	}
-
-	public int readFully(byte[] buffer, int count) throws IOException {
-		return rac.getInputStream().read(buffer, 0, count);
+	@Override
+	protected int readBlock(long pos, byte[] buffer, int off, int count)
+			throws IOException {
+		long available = rac.length() - pos;
+		if (available <= 0) {
+			return -1;
+		}
+		int read = (int) Math.min(count, available);
+		if (rac.getFilePointer() != pos) {
+			rac.seek(pos);
+		}
+		rac.readFully(buffer, off, read);
+		return read;
 	}
 
 	public void close() throws IOException {
+		invalidateBuffer();
 		rac.close();
 	}
 }